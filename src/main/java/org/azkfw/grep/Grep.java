@@ -18,20 +18,33 @@
 package org.azkfw.grep;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.azkfw.grep.cash.CashStore;
+import org.azkfw.grep.cash.CharsetCash;
 import org.azkfw.grep.entity.BasicGrepStatistics;
 import org.azkfw.grep.entity.GrepCondition;
 import org.azkfw.grep.entity.GrepMatchFile;
 import org.azkfw.grep.entity.GrepResult;
 import org.azkfw.grep.entity.GrepStatistics;
+import org.azkfw.grep.entity.GrepTargetFile;
+import org.azkfw.grep.matcher.GrepPatternSet;
 import org.azkfw.grep.scanner.GrepScanner;
 import org.azkfw.grep.scanner.GrepScannerEvent;
 import org.azkfw.grep.scanner.GrepScannerListener;
+import org.azkfw.grep.scanner.ParallelGrepScanner;
+import org.azkfw.grep.util.GrepUtility;
 
 import searcher.GrepSearcher;
 import searcher.GrepSearcherEvent;
@@ -53,19 +66,41 @@ public class Grep {
 	private final BasicGrepStatistics statistics;
 	/** キャッシュ */
 	private final CashStore store;
+	/** 実行設定 */
+	private final GrepConfiguration configuration;
+	/** スケジューラー */
+	private final GrepScheduler scheduler;
+	/** スケジューラーを共有しているか */
+	private final boolean sharedScheduler;
 
 	/** 実行フラグ */
 	private Boolean runningFlag;
 	/** 停止要求フラグ */
-	private Boolean stopRequest;
+	private volatile boolean stopRequest;
 
 	/** Grep条件情報 */
 	private GrepCondition condition;
+	/** 検索パターン(実行毎に生成し、サーチャー間で共有する) */
+	private GrepPatternSet patternSet;
 
 	/** マッチファイル一覧 */
 	private List<GrepMatchFile> matchFiles;
 
-	private int searcherSize = 2;
+	/** 実行中のGrep結果Future */
+	private volatile CompletableFuture<GrepResult> future;
+	/** 開始時間(ナノ秒) */
+	private long startNanoTime;
+
+	/** Grep対象ファイルキュー */
+	private volatile BlockingQueue<GrepTargetFile> files;
+	/** 実行中のサーチャー数 */
+	private final AtomicInteger activeSearchers;
+	/** スキャナー終了フラグ */
+	private volatile boolean scannerEnd;
+	/** 終了処理済みフラグ */
+	private final AtomicBoolean finished;
+	/** ディスパッチャー(同期通知の場合、<code>null</code>) */
+	private volatile GrepDispatcher dispatcher;
 
 	/**
 	 * コンストラクタ
@@ -80,16 +115,45 @@ public class Grep {
 	 * @param store キャッシュ
 	 */
 	public Grep(final CashStore store) {
+		this(store, new GrepConfiguration());
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param store キャッシュ
+	 * @param configuration 実行設定
+	 */
+	public Grep(final CashStore store, final GrepConfiguration configuration) {
+		this(store, configuration, new GrepScheduler(configuration), false);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param store キャッシュ
+	 * @param configuration 実行設定
+	 * @param scheduler スケジューラー
+	 * @param shared スケジューラーを共有している場合、<code>true</code>
+	 */
+	Grep(final CashStore store, final GrepConfiguration configuration, final GrepScheduler scheduler, final boolean shared) {
 		this.event = new GrepEvent(this);
 		this.listeners = new ArrayList<GrepListener>();
 
 		this.statistics = new BasicGrepStatistics();
 		this.store = store;
+		this.configuration = configuration;
+		this.scheduler = scheduler;
+		this.sharedScheduler = shared;
 
 		runningFlag = Boolean.FALSE;
-		stopRequest = Boolean.FALSE;
+		stopRequest = false;
 
 		matchFiles = new ArrayList<GrepMatchFile>();
+		future = null;
+
+		activeSearchers = new AtomicInteger();
+		finished = new AtomicBoolean();
 	}
 
 	public synchronized void addGrepListener(final GrepListener listener) {
@@ -104,83 +168,190 @@ public class Grep {
 		return condition;
 	}
 
-	public boolean start(final GrepCondition condition) {
-		boolean result = false;
-
-		synchronized (this) {
-
-			if (!runningFlag) {
-				this.condition = condition;
-
-				runningFlag = Boolean.TRUE;
-				stopRequest = Boolean.FALSE;
-
-				final Thread thread = new Thread(new Runnable() {
-					@Override
-					public void run() {
-						matchFiles.clear();
-
-						// call listener start
-						synchronized (listeners) {
-							listeners.forEach(l -> l.grepStart(event));
-						}
-
-						final long startNanoTime = System.nanoTime();
-
-						doThreadMain();
-
-						runningFlag = Boolean.FALSE;
-
-						final long endNanoTime = System.nanoTime();
-
-						final GrepResult result = new GrepResult();
-						result.setProcessingNanoTime(endNanoTime - startNanoTime);
-						result.setMatchFiles(matchFiles);
+	public GrepConfiguration getConfiguration() {
+		return configuration;
+	}
 
-						// call listener finished
-						synchronized (listeners) {
-							listeners.forEach(l -> l.grepFinished(event, result));
-						}
-					}
-				});
-				thread.setName("AzukiGrepMainThread");
-				thread.start();
+	/**
+	 * Grepを開始する。
+	 * <p>
+	 * リスナーは呼び出し元のスレッドからは呼び出さない。<br/>
+	 * {@link GrepListener#grepFinished}の実行中は終了していないため、開始できない。
+	 * </p>
+	 * 
+	 * @param condition Grep条件
+	 * @return 開始した場合、<code>true</code>を返す。実行中の場合、<code>false</code>を返す。
+	 */
+	public boolean start(final GrepCondition condition) {
+		return GrepUtility.isNotNull(doStart(condition));
+	}
 
-				result = true;
-			}
+	/**
+	 * Grepを非同期に開始する。
+	 * <p>
+	 * 返却したFutureは、最後のサーチャーが終了し{@link GrepListener#grepFinished}の呼び出しが完了した時点で完了する。<br/>
+	 * 実行中の場合、{@link IllegalStateException}で異常終了したFutureを返す。
+	 * </p>
+	 * 
+	 * @param condition Grep条件
+	 * @return Grep結果のFuture
+	 */
+	public CompletableFuture<GrepResult> submit(final GrepCondition condition) {
+		CompletableFuture<GrepResult> result = doStart(condition);
+		if (GrepUtility.isNull(result)) {
+			result = new CompletableFuture<GrepResult>();
+			result.completeExceptionally(new IllegalStateException("Grep is already running."));
 		}
-
 		return result;
 	}
 
 	public void stop() {
-		stopRequest = Boolean.TRUE;
+		stopRequest = true;
+
+		// キュー待ちのスキャナーを解放する
+		final BlockingQueue<GrepTargetFile> queue = files;
+		if (GrepUtility.isNotNull(queue)) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * 停止要求有無を判断する。
+	 * <p>
+	 * サーチャーは検索中もこの値を参照し、停止要求があれば処理中のファイルを中断する。
+	 * </p>
+	 * 
+	 * @return 停止要求がある場合、<code>true</code>を返す。
+	 */
+	public boolean isStopRequested() {
+		return stopRequest;
 	}
 
+	/**
+	 * 実行中のGrepの終了を待機する。
+	 * 
+	 * @return 終了した場合、<code>true</code>を返す。
+	 */
 	public boolean waitFor() {
 		boolean result = false;
+		final CompletableFuture<GrepResult> f = future;
+		if (GrepUtility.isNull(f)) {
+			return true;
+		}
 		try {
-			while (runningFlag) {
-				Thread.sleep(100);
-			}
+			f.get();
 			result = true;
 		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
 			ex.printStackTrace();
 		}
 		return result;
 	}
 
-	private Thread scanner;
-	private List<Thread> searchers;
+	/**
+	 * Grep結果のFutureを取得する。
+	 * 
+	 * @return 最後に開始したGrepの結果Future。未実行の場合、<code>null</code>を返す。
+	 */
+	public CompletableFuture<GrepResult> getFuture() {
+		return future;
+	}
+
+	/**
+	 * 生成したスレッドプールを終了する。
+	 * <p>
+	 * {@link GrepService}から生成したGrepの場合、共有しているスレッドプールは終了しない。
+	 * </p>
+	 */
+	public void shutdown() {
+		if (!sharedScheduler) {
+			scheduler.shutdown();
+		}
+	}
+
+	private CompletableFuture<GrepResult> doStart(final GrepCondition condition) {
+		final CompletableFuture<GrepResult> result;
+		synchronized (this) {
+			if (runningFlag) {
+				return null;
+			}
+			this.condition = condition;
 
-	private Queue<File> files;
+			runningFlag = Boolean.TRUE;
+			stopRequest = false;
+
+			result = new CompletableFuture<GrepResult>();
+			future = result;
+		}
 
-	private void doThreadMain() {
+		matchFiles = new ArrayList<GrepMatchFile>();
+		patternSet = GrepSearcher.createPatternSet(condition);
 		statistics.reset();
 
-		files = new LinkedList<File>();
+		files = new ArrayBlockingQueue<GrepTargetFile>(configuration.getQueueSize());
+		activeSearchers.set(0);
+		scannerEnd = false;
+		finished.set(false);
+
+		dispatcher = createDispatcher();
+		final Runnable task;
+		if (GrepUtility.isNotNull(dispatcher)) {
+			dispatcher.dispatchStart();
+			task = createScanner();
+		} else {
+			// 同期通知の場合も開始は呼び出し元(GUIのイベントディスパッチスレッド等)ではなくスキャナーのスレッドで通知する
+			final GrepScanner scanner = createScanner();
+			task = () -> {
+				fireStart();
+				scanner.run();
+			};
+		}
+
+		startNanoTime = System.nanoTime();
 
-		scanner = new Thread(new GrepScanner(this, condition, new GrepScannerListener() {
+		try {
+			scheduler.getScannerExecutor().execute(task);
+		} catch (RejectedExecutionException ex) {
+			// 開始と対になるよう終了を通知し、ディスパッチャーを終了させる
+			result.completeExceptionally(ex);
+			if (finished.compareAndSet(false, true)) {
+				if (GrepUtility.isNull(dispatcher)) {
+					fireStart();
+				}
+				finish();
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * ディスパッチャーを生成し、起動する。
+	 * 
+	 * @return ディスパッチャー。同期通知の場合、<code>null</code>を返す。
+	 */
+	private GrepDispatcher createDispatcher() {
+		if (!configuration.isAsyncDispatch()) {
+			return null;
+		}
+		final GrepDispatcher dispatcher = new GrepDispatcher(this, configuration);
+		try {
+			scheduler.getDispatcherExecutor().execute(dispatcher);
+		} catch (RejectedExecutionException ex) {
+			ex.printStackTrace();
+			return null;
+		}
+		return dispatcher;
+	}
+
+	/**
+	 * スキャナーを生成する。
+	 * 
+	 * @return スキャナー
+	 */
+	private GrepScanner createScanner() {
+		final GrepScannerListener listener = new GrepScannerListener() {
 			@Override
 			public void grepScannerStart(GrepScannerEvent event) {
 
@@ -188,7 +359,7 @@ public class Grep {
 
 			@Override
 			public void grepScannerEnd(GrepScannerEvent event) {
-
+				endScanner();
 			}
 
 			@Override
@@ -208,79 +379,191 @@ public class Grep {
 			}
 
 			@Override
-			public void grepScannerTargetFile(final File file, final GrepScannerEvent event) {
-				offerFile(file);
+			public void grepScannerTargetFile(final GrepTargetFile file, final GrepScannerEvent event) {
+				if (stopRequest) {
+					event.stop();
+					return;
+				}
+				if (!offerFile(file)) {
+					event.stop();
+				}
 			}
 
 			@Override
 			public void grepScannerTargetDirectory(final File file, final GrepScannerEvent event) {
 			}
-		}));
-		scanner.setName("AzukiGrepScannerThread");
-		scanner.start();
+		};
 
-		searchers = new ArrayList<Thread>();
-		for (int i = 0; i < searcherSize; i++) {
-			Thread searcher = new Thread(new GrepSearcher(this, condition, new GrepSearcherListener() {
-				@Override
-				public void grepSearcherStart(GrepSearcherEvent event) {
+		if (1 < configuration.getScannerParallelism()) {
+			return new ParallelGrepScanner(this, condition, listener, scheduler.getScannerPool());
+		} else {
+			return new GrepScanner(this, condition, listener);
+		}
+	}
 
-				}
+	/**
+	 * サーチャーを生成する。
+	 * <p>
+	 * サーチャーはキューから最大{@link GrepConfiguration#getSliceSize()}件を処理して終了する。
+	 * </p>
+	 * 
+	 * @return サーチャー
+	 */
+	private GrepSearcher createSearcher() {
+		final int sliceSize = configuration.getSliceSize();
+		return new GrepSearcher(this, condition, new GrepSearcherListener() {
+			private int count = 0;
 
-				@Override
-				public void grepSearcherEnd(GrepSearcherEvent event) {
+			@Override
+			public void grepSearcherStart(GrepSearcherEvent event) {
 
-				}
+			}
 
-				@Override
-				public File grepSearcherGetFile(GrepSearcherEvent event) {
-					if (stopRequest) {
-						event.stop();
-						return null;
-					}
-					if (isSearcherStop()) {
-						event.stop();
-						return null;
-					}
-					return pollFile();
-				}
+			@Override
+			public void grepSearcherEnd(GrepSearcherEvent event) {
+				endSearcher();
+			}
 
-				@Override
-				public void grepSearcherMatchFile(final GrepMatchFile matchFile, final GrepSearcherEvent event) {
-					findFile(matchFile);
+			@Override
+			public GrepTargetFile grepSearcherGetFile(GrepSearcherEvent event) {
+				GrepTargetFile file = null;
+				if (!stopRequest && count < sliceSize) {
+					file = files.poll();
+				}
+				if (null == file) {
+					event.stop();
+				} else {
+					count++;
 				}
+				return file;
+			}
 
-				@Override
-				public void grepSearcherUnmatchFile(final File file, final GrepSearcherEvent event) {
+			@Override
+			public void grepSearcherMatchFile(final GrepMatchFile matchFile, final GrepSearcherEvent event) {
+				findFile(matchFile);
+			}
 
-				}
-			}, store));
-			searcher.setName("AzukiGrepSearcherThread-" + (i + 1));
-			searchers.add(searcher);
+			@Override
+			public void grepSearcherUnmatchFile(final File file, final GrepSearcherEvent event) {
+
+			}
+		}, store, statistics, patternSet);
+	}
+
+	/**
+	 * サーチャーを起動する。
+	 * <p>
+	 * 実行中のサーチャー数が上限未満の場合のみ起動する。
+	 * </p>
+	 */
+	private void scheduleSearcher() {
+		final int searcherSize = configuration.getSearcherSize();
+		while (true) {
+			final int active = activeSearchers.get();
+			if (searcherSize <= active) {
+				return;
+			}
+			if (activeSearchers.compareAndSet(active, active + 1)) {
+				break;
+			}
 		}
-		for (Thread thread : searchers) {
-			thread.start();
+		try {
+			scheduler.getSearcherExecutor().execute(createSearcher());
+		} catch (RejectedExecutionException ex) {
+			ex.printStackTrace();
+			stop();
+			endSearcher();
 		}
+	}
 
-		while (!isStop()) {
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException ex) {
-				ex.printStackTrace();
-			}
+	/**
+	 * サーチャーの終了を通知する。
+	 * <p>
+	 * キューにファイルが残っている場合はサーチャーを再投入する。
+	 * </p>
+	 */
+	private void endSearcher() {
+		activeSearchers.decrementAndGet();
+		if (stopRequest) {
+			files.clear();
+		} else if (!files.isEmpty()) {
+			scheduleSearcher();
 		}
+		checkFinish();
 	}
 
-	private boolean isStop() {
-		if (scanner.isAlive()) {
-			return false;
+	/**
+	 * スキャナーの終了を通知する。
+	 */
+	private void endScanner() {
+		scannerEnd = true;
+		if (stopRequest) {
+			files.clear();
+		} else if (!files.isEmpty()) {
+			scheduleSearcher();
+		}
+		checkFinish();
+	}
+
+	/**
+	 * Grepの終了を判断する。
+	 * <p>
+	 * スキャナーが終了し、キューが空かつ実行中のサーチャーが無い場合に結果を生成し、Futureを完了する。
+	 * </p>
+	 */
+	private void checkFinish() {
+		if (!scannerEnd) {
+			return;
+		}
+		if (!stopRequest && !files.isEmpty()) {
+			return;
+		}
+		if (0 < activeSearchers.get()) {
+			return;
+		}
+		if (!finished.compareAndSet(false, true)) {
+			return;
+		}
+
+		finish();
+	}
+
+	/**
+	 * 結果を生成し、終了を通知する。
+	 * <p>
+	 * 終了通知後にFutureを完了する。Futureが異常終了済みの場合、終了の通知のみ行う。
+	 * </p>
+	 */
+	private void finish() {
+		final long endNanoTime = System.nanoTime();
+		statistics.finish();
+		saveCharsetCash();
+
+		final GrepResult result = new GrepResult();
+		result.setProcessingNanoTime(endNanoTime - startNanoTime);
+		result.setMatchFiles(matchFiles);
+
+		final CompletableFuture<GrepResult> f = future;
+		final GrepDispatcher d = dispatcher;
+		if (GrepUtility.isNotNull(d)) {
+			d.dispatchFinished(result, f);
+		} else {
+			fireFinished(result, f);
 		}
-		for (Thread searcher : searchers) {
-			if (searcher.isAlive()) {
-				return false;
+	}
+
+	/**
+	 * 文字セットのキャッシュを保存する。
+	 */
+	private void saveCharsetCash() {
+		final CharsetCash cash = configuration.getCharsetCash();
+		if (GrepUtility.isNotNull(cash)) {
+			try {
+				cash.save();
+			} catch (IOException ex) {
+				ex.printStackTrace();
 			}
 		}
-		return true;
 	}
 
 	/**
@@ -288,7 +571,7 @@ public class Grep {
 	 * 
 	 * @param file ファイル
 	 */
-	synchronized void searchFile(final File file) {
+	void searchFile(final File file) {
 		statistics.countupSearchFile(file);
 	}
 
@@ -297,61 +580,120 @@ public class Grep {
 	 * 
 	 * @param directory ディレクトリ
 	 */
-	synchronized void searchDirectory(final File directory) {
+	void searchDirectory(final File directory) {
 		statistics.countupSearchDirectory(directory);
 	}
 
 	/**
 	 * Grep対象のファイルをキューに入れる。
+	 * <p>
+	 * キューが満杯の場合、サーチャーが取り出すまで待機する。<br/>
+	 * 並列スキャンではFork/Joinのワーカースレッドから呼び出されるため、{@link ForkJoinPool#managedBlock}で待機し、待機中はプールに補償スレッドを追加させる。
+	 * </p>
 	 * 
 	 * @param file ファイル
+	 * @return キューに入れた場合、<code>true</code>を返す。
 	 */
-	void offerFile(final File file) {
-		synchronized (files) {
-			statistics.countupTargetFile(file);
+	boolean offerFile(final GrepTargetFile file) {
+		statistics.countupTargetFile(file);
+
+		final BlockingQueue<GrepTargetFile> queue = files;
+		try {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				private boolean queued = false;
+
+				@Override
+				public boolean block() throws InterruptedException {
+					if (!queued) {
+						queue.put(file);
+						queued = true;
+					}
+					return true;
+				}
 
-			files.offer(file);
+				@Override
+				public boolean isReleasable() {
+					if (!queued) {
+						queued = queue.offer(file);
+					}
+					return queued;
+				}
+			});
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		scheduleSearcher();
+		return true;
+	}
+
+	void findFile(final GrepMatchFile matchFile) {
+		statistics.countupHitFile(matchFile.getFile());
+		synchronized (matchFiles) {
+			matchFiles.add(matchFile);
+		}
+
+		final GrepDispatcher d = dispatcher;
+		if (GrepUtility.isNotNull(d)) {
+			d.dispatchFindFile(matchFile);
+		} else {
+			fireFindFiles(Collections.singletonList(matchFile));
 		}
 	}
 
 	/**
-	 * Grep対象のファイルをキューから取得する。
-	 * 
-	 * @return
+	 * 開始をリスナーに通知する。
 	 */
-	File pollFile() {
-		File file = null;
-		synchronized (files) {
-			file = files.poll();
+	void fireStart() {
+		synchronized (listeners) {
+			listeners.forEach(l -> l.grepStart(event));
 		}
-		return file;
 	}
 
-	void findFile(final GrepMatchFile matchFile) {
-		// call listener finished
+	/**
+	 * 見つかったファイルをリスナーに通知する。
+	 * <p>
+	 * {@link GrepBatchListener}には一覧で、それ以外のリスナーには1件ずつ通知する。
+	 * </p>
+	 * 
+	 * @param files ファイル情報一覧
+	 */
+	void fireFindFiles(final List<GrepMatchFile> files) {
 		synchronized (listeners) {
-			matchFiles.add(matchFile);
-			statistics.countupHitFile(matchFile.getFile());
-
-			listeners.forEach(l -> l.grepFindFile(event, matchFile));
+			for (final GrepListener listener : listeners) {
+				if (listener instanceof GrepBatchListener) {
+					((GrepBatchListener) listener).grepFindFiles(event, files);
+				} else {
+					for (final GrepMatchFile file : files) {
+						listener.grepFindFile(event, file);
+					}
+				}
+			}
 		}
 	}
 
 	/**
-	 * スキャナー停止確認
+	 * 終了をリスナーに通知し、Futureを完了する。
 	 * <p>
-	 * スキャナーが定義済みかの判断を行う。<br/>
-	 * スキャナーが停止済みかつ、処理対象ファイルが0件の場合
+	 * 実行フラグはリスナーの呼び出し後に解除する。{@link GrepListener#grepFinished}の実行中は次のGrepを開始できないため、
+	 * 統計情報・マッチファイル一覧がリセットされることはない。
 	 * </p>
 	 * 
-	 * @return 停止の場合、<code>true</code>を返す。
+	 * @param result Grep結果
+	 * @param f Grep結果のFuture
 	 */
-	boolean isSearcherStop() {
-		if (scanner.isAlive())
-			return false;
-		if (0 < files.size())
-			return false;
-		return true;
+	void fireFinished(final GrepResult result, final CompletableFuture<GrepResult> f) {
+		try {
+			// call listener finished
+			synchronized (listeners) {
+				listeners.forEach(l -> l.grepFinished(event, result));
+			}
+		} finally {
+			synchronized (this) {
+				runningFlag = Boolean.FALSE;
+			}
+			f.complete(result);
+		}
 	}
 
-}
+}
\ No newline at end of file
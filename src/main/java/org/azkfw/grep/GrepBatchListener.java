@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+import java.util.List;
+
+import org.azkfw.grep.entity.GrepMatchFile;
+
+/**
+ * このインターフェースは、見つかったファイルをまとめて受け取るGrepイベントを定義したインターフェースです。
+ * <p>
+ * {@link GrepListener#grepFindFile}の代わりに呼び出される。<br/>
+ * 非同期通知が有効な場合、ディスパッチャースレッドから最大{@link GrepConfiguration#getDispatchBatchSize()}件ずつ通知される。<br/>
+ * 同期通知の場合、サーチャースレッドから1件ずつ通知される。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public interface GrepBatchListener extends GrepListener {
+
+	/**
+	 * 対象ファイルが見つかった時にまとめて呼び出される
+	 * 
+	 * @param e イベント
+	 * @param files ファイル情報一覧(見つかった順)
+	 */
+	void grepFindFiles(GrepEvent e, List<GrepMatchFile> files);
+}
@@ -0,0 +1,560 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.azkfw.grep.cash.CashForm;
+import org.azkfw.grep.cash.CharsetCash;
+
+/**
+ * このクラスは、Grepの実行設定を保持するクラスです。
+ *
+ * @author Kawakicchi
+ */
+public class GrepConfiguration {
+
+	/** Grep対象ファイルキューの最大件数(デフォルト) */
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	/** サーチャーが1回のタスクで処理するファイル数(デフォルト) */
+	public static final int DEFAULT_SLICE_SIZE = 32;
+
+	/** リスナー通知キューの最大件数(デフォルト) */
+	public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+
+	/** リスナーへまとめて通知する最大件数(デフォルト) */
+	public static final int DEFAULT_DISPATCH_BATCH_SIZE = 64;
+
+	/** 文字セットの判別に使用する先頭部分のバイト数(デフォルト) */
+	public static final int DEFAULT_CHARSET_SAMPLE_SIZE = 64 * 1024;
+
+	/** メモリマップで読み込むファイルサイズ(デフォルト。メモリマップを使用しない) */
+	public static final long DEFAULT_MAPPING_THRESHOLD = Long.MAX_VALUE;
+
+	/** 分割して検索するファイルサイズ(デフォルト) */
+	public static final long DEFAULT_STREAMING_THRESHOLD = 64L * 1024L * 1024L;
+
+	/** 分割検索の1回あたりの文字数(デフォルト) */
+	public static final int DEFAULT_STREAMING_WINDOW_SIZE = 1024 * 1024;
+
+	/** 分割検索で行が分割に収まらない場合に重ねる文字数(デフォルト) */
+	public static final int DEFAULT_STREAMING_OVERLAP_SIZE = 4096;
+
+	/** サーチャー数 */
+	private int searcherSize;
+
+	/** Grep対象ファイルキューの最大件数 */
+	private int queueSize;
+
+	/** サーチャーが1回のタスクで処理するファイル数 */
+	private int sliceSize;
+
+	/** スキャナーの並列数 */
+	private int scannerParallelism;
+
+	/** スレッドファクトリー */
+	private ThreadFactory threadFactory;
+
+	/** エグゼキューター */
+	private ExecutorService executorService;
+
+	/** 非同期通知 */
+	private boolean asyncDispatch;
+
+	/** リスナー通知キューの最大件数 */
+	private int dispatchQueueSize;
+
+	/** リスナーへまとめて通知する最大件数 */
+	private int dispatchBatchSize;
+
+	/** リスナー通知キューが満杯の場合の動作 */
+	private GrepOverflowPolicy overflowPolicy;
+
+	/** 文字セットの判別に使用する先頭部分のバイト数 */
+	private int charsetSampleSize;
+
+	/** 文字セットのキャッシュ */
+	private CharsetCash charsetCash;
+
+	/** メモリマップで読み込むファイルサイズ */
+	private long mappingThreshold;
+
+	/** キャッシュするファイル内容の保持形式 */
+	private CashForm cashForm;
+
+	/** 分割して検索するファイルサイズ */
+	private long streamingThreshold;
+
+	/** 分割検索の1回あたりの文字数 */
+	private int streamingWindowSize;
+
+	/** 分割検索で行が分割に収まらない場合に重ねる文字数 */
+	private int streamingOverlapSize;
+
+	/**
+	 * コンストラクタ
+	 */
+	public GrepConfiguration() {
+		searcherSize = getDefaultSearcherSize();
+		queueSize = DEFAULT_QUEUE_SIZE;
+		sliceSize = DEFAULT_SLICE_SIZE;
+		scannerParallelism = 1;
+		threadFactory = new GrepThreadFactory();
+		executorService = null;
+		asyncDispatch = false;
+		dispatchQueueSize = DEFAULT_DISPATCH_QUEUE_SIZE;
+		dispatchBatchSize = DEFAULT_DISPATCH_BATCH_SIZE;
+		overflowPolicy = GrepOverflowPolicy.BLOCK;
+		charsetSampleSize = DEFAULT_CHARSET_SAMPLE_SIZE;
+		mappingThreshold = DEFAULT_MAPPING_THRESHOLD;
+		cashForm = CashForm.TEXT;
+		streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+		streamingWindowSize = DEFAULT_STREAMING_WINDOW_SIZE;
+		streamingOverlapSize = DEFAULT_STREAMING_OVERLAP_SIZE;
+	}
+
+	/**
+	 * デフォルトのサーチャー数を取得する。
+	 * <p>
+	 * 実行環境の論理プロセッサ数を返す。
+	 * </p>
+	 *
+	 * @return サーチャー数
+	 */
+	public static int getDefaultSearcherSize() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * サーチャー数を設定する。
+	 *
+	 * @param size サーチャー数
+	 */
+	public void setSearcherSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("searcherSize must be greater than 0.");
+		}
+		searcherSize = size;
+	}
+
+	/**
+	 * サーチャー数を取得する。
+	 *
+	 * @return サーチャー数
+	 */
+	public int getSearcherSize() {
+		return searcherSize;
+	}
+
+	/**
+	 * Grep対象ファイルキューの最大件数を設定する。
+	 *
+	 * @param size 最大件数
+	 */
+	public void setQueueSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("queueSize must be greater than 0.");
+		}
+		queueSize = size;
+	}
+
+	/**
+	 * Grep対象ファイルキューの最大件数を取得する。
+	 *
+	 * @return 最大件数
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * サーチャーが1回のタスクで処理するファイル数を設定する。
+	 * <p>
+	 * 指定件数を処理したサーチャーはタスクを再投入し、エグゼキューターを共有する他のGrepに実行を譲る。
+	 * </p>
+	 *
+	 * @param size ファイル数
+	 */
+	public void setSliceSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("sliceSize must be greater than 0.");
+		}
+		sliceSize = size;
+	}
+
+	/**
+	 * サーチャーが1回のタスクで処理するファイル数を取得する。
+	 *
+	 * @return ファイル数
+	 */
+	public int getSliceSize() {
+		return sliceSize;
+	}
+
+	/**
+	 * スキャナーの並列数を設定する。
+	 * <p>
+	 * 2以上を指定した場合、Fork/Joinによる並列スキャンを行う。<br/>
+	 * ネットワークドライブなど、ディレクトリの一覧取得が遅い環境で有効。
+	 * </p>
+	 *
+	 * @param parallelism 並列数
+	 */
+	public void setScannerParallelism(final int parallelism) {
+		if (1 > parallelism) {
+			throw new IllegalArgumentException("scannerParallelism must be greater than 0.");
+		}
+		scannerParallelism = parallelism;
+	}
+
+	/**
+	 * スキャナーの並列数を取得する。
+	 *
+	 * @return 並列数
+	 */
+	public int getScannerParallelism() {
+		return scannerParallelism;
+	}
+
+	/**
+	 * スレッドファクトリーを設定する。
+	 * <p>
+	 * エグゼキューターを指定しない場合に、Grepが生成するスレッドプールで使用する。
+	 * </p>
+	 *
+	 * @param factory スレッドファクトリー
+	 */
+	public void setThreadFactory(final ThreadFactory factory) {
+		threadFactory = (null != factory) ? factory : new GrepThreadFactory();
+	}
+
+	/**
+	 * スレッドファクトリーを取得する。
+	 *
+	 * @return スレッドファクトリー
+	 */
+	public ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	/**
+	 * サーチャー用のエグゼキューターを設定する。
+	 * <p>
+	 * 複数のGrep実行で共有する長寿命のエグゼキューターを指定する。<br/>
+	 * 指定したエグゼキューターのシャットダウンは呼び出し側で行うこと。<br/>
+	 * サーチャーのタスクはブロックしないため、固定サイズのスレッドプールを共有できる。
+	 * </p>
+	 *
+	 * @param executor エグゼキューター
+	 */
+	public void setExecutorService(final ExecutorService executor) {
+		executorService = executor;
+	}
+
+	/**
+	 * エグゼキューターを取得する。
+	 *
+	 * @return エグゼキューター。未指定の場合、<code>null</code>を返す。
+	 */
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * リスナーへの非同期通知を設定する。
+	 * <p>
+	 * 有効な場合、リスナーはサーチャーではなく専用のディスパッチャースレッドから呼び出される。<br/>
+	 * 無効な場合、リスナーはサーチャースレッドから直接呼び出される。<br/>
+	 * 既存のリスナーが呼び出し元のスレッドに依存しないよう、デフォルトは無効とする。
+	 * </p>
+	 *
+	 * @param async 非同期に通知する場合、<code>true</code>
+	 */
+	public void setAsyncDispatch(final boolean async) {
+		asyncDispatch = async;
+	}
+
+	/**
+	 * リスナーへの非同期通知有無を判断する。
+	 *
+	 * @return 非同期に通知する場合、<code>true</code>を返す。
+	 */
+	public boolean isAsyncDispatch() {
+		return asyncDispatch;
+	}
+
+	/**
+	 * リスナー通知キューの最大件数を設定する。
+	 *
+	 * @param size 最大件数
+	 */
+	public void setDispatchQueueSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("dispatchQueueSize must be greater than 0.");
+		}
+		dispatchQueueSize = size;
+	}
+
+	/**
+	 * リスナー通知キューの最大件数を取得する。
+	 *
+	 * @return 最大件数
+	 */
+	public int getDispatchQueueSize() {
+		return dispatchQueueSize;
+	}
+
+	/**
+	 * リスナーへまとめて通知する最大件数を設定する。
+	 * <p>
+	 * {@link GrepBatchListener}には最大この件数の一覧で通知する。
+	 * </p>
+	 *
+	 * @param size 最大件数
+	 */
+	public void setDispatchBatchSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("dispatchBatchSize must be greater than 0.");
+		}
+		dispatchBatchSize = size;
+	}
+
+	/**
+	 * リスナーへまとめて通知する最大件数を取得する。
+	 *
+	 * @return 最大件数
+	 */
+	public int getDispatchBatchSize() {
+		return dispatchBatchSize;
+	}
+
+	/**
+	 * リスナー通知キューが満杯の場合の動作を設定する。
+	 *
+	 * @param policy 動作
+	 */
+	public void setOverflowPolicy(final GrepOverflowPolicy policy) {
+		overflowPolicy = (null != policy) ? policy : GrepOverflowPolicy.BLOCK;
+	}
+
+	/**
+	 * リスナー通知キューが満杯の場合の動作を取得する。
+	 *
+	 * @return 動作
+	 */
+	public GrepOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * 文字セットの判別に使用する先頭部分のバイト数を設定する。
+	 * <p>
+	 * 先頭部分で判別できない場合、ファイル全体で判別する(分割して検索するファイルを除く)。
+	 * </p>
+	 *
+	 * @param size バイト数
+	 */
+	public void setCharsetSampleSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("charsetSampleSize must be greater than 0.");
+		}
+		charsetSampleSize = size;
+	}
+
+	/**
+	 * 文字セットの判別に使用する先頭部分のバイト数を取得する。
+	 *
+	 * @return バイト数
+	 */
+	public int getCharsetSampleSize() {
+		return charsetSampleSize;
+	}
+
+	/**
+	 * 文字セットのキャッシュを設定する。
+	 * <p>
+	 * 判別した文字セットをファイル毎に保持し、変更されていないファイルの判別を省略する。<br/>
+	 * 保存先のファイルを指定したキャッシュは、Grepの終了時に保存する。
+	 * </p>
+	 *
+	 * @param cash キャッシュ。<code>null</code>の場合、キャッシュしない。
+	 */
+	public void setCharsetCash(final CharsetCash cash) {
+		charsetCash = cash;
+	}
+
+	/**
+	 * 文字セットのキャッシュを取得する。
+	 *
+	 * @return キャッシュ。未設定の場合、<code>null</code>を返す。
+	 */
+	public CharsetCash getCharsetCash() {
+		return charsetCash;
+	}
+
+	/**
+	 * メモリマップで読み込むファイルサイズを設定する。
+	 * <p>
+	 * このサイズ以上のファイルは{@link java.nio.channels.FileChannel#map}で読み込み、
+	 * 文字セットの判別・検索文字列の事前判定・デコードを同じマップから行う。<br/>
+	 * 分割して検索するファイルサイズを超えるファイルには適用しない。
+	 * </p>
+	 * <p>
+	 * マップはガベージコレクションで回収されるまで解放されない。Windowsではその間ファイルがロックされ、
+	 * エディター等からファイルを切り詰め・置き換えできないため、デフォルトではメモリマップを使用しない。
+	 * </p>
+	 *
+	 * @param threshold ファイルサイズ(バイト)
+	 */
+	public void setMappingThreshold(final long threshold) {
+		if (1 > threshold) {
+			throw new IllegalArgumentException("mappingThreshold must be greater than 0.");
+		}
+		mappingThreshold = threshold;
+	}
+
+	/**
+	 * メモリマップで読み込むファイルサイズを取得する。
+	 *
+	 * @return ファイルサイズ(バイト)
+	 */
+	public long getMappingThreshold() {
+		return mappingThreshold;
+	}
+
+	/**
+	 * キャッシュするファイル内容の保持形式を設定する。
+	 * <p>
+	 * {@link CashForm#TEXT}以外の形式はキャッシュのサイズを抑える代わりに、キャッシュから検索する度にデコードする。
+	 * </p>
+	 *
+	 * @param form 保持形式
+	 */
+	public void setCashForm(final CashForm form) {
+		if (null == form) {
+			throw new IllegalArgumentException("cashForm must not be null.");
+		}
+		cashForm = form;
+	}
+
+	/**
+	 * キャッシュするファイル内容の保持形式を取得する。
+	 *
+	 * @return 保持形式
+	 */
+	public CashForm getCashForm() {
+		return cashForm;
+	}
+
+	/**
+	 * 分割して検索するファイルサイズを設定する。
+	 * <p>
+	 * このサイズを超えるファイルはファイル全体を読み込まず、行単位の分割毎にデコードして検索する。<br/>
+	 * 分割検索したファイルはキャッシュしない。
+	 * </p>
+	 *
+	 * @param threshold ファイルサイズ(バイト)
+	 */
+	public void setStreamingThreshold(final long threshold) {
+		if (1 > threshold) {
+			throw new IllegalArgumentException("streamingThreshold must be greater than 0.");
+		}
+		streamingThreshold = threshold;
+	}
+
+	/**
+	 * 分割して検索するファイルサイズを取得する。
+	 *
+	 * @return ファイルサイズ(バイト)
+	 */
+	public long getStreamingThreshold() {
+		return streamingThreshold;
+	}
+
+	/**
+	 * 分割検索の1回あたりの文字数を設定する。
+	 * <p>
+	 * サーチャー毎にこの文字数のバッファを使用する。
+	 * </p>
+	 *
+	 * @param size 文字数
+	 */
+	public void setStreamingWindowSize(final int size) {
+		if (1 > size) {
+			throw new IllegalArgumentException("streamingWindowSize must be greater than 0.");
+		}
+		streamingWindowSize = size;
+	}
+
+	/**
+	 * 分割検索の1回あたりの文字数を取得する。
+	 *
+	 * @return 文字数
+	 */
+	public int getStreamingWindowSize() {
+		return streamingWindowSize;
+	}
+
+	/**
+	 * 分割検索で行が分割に収まらない場合に重ねる文字数を設定する。
+	 * <p>
+	 * 1行が分割の文字数を超える場合、分割の境界をまたぐ一致を見つけるため、この文字数を次の分割に重ねて検索する。<br/>
+	 * 一致の最大長以上を指定すること。
+	 * </p>
+	 *
+	 * @param size 文字数
+	 */
+	public void setStreamingOverlapSize(final int size) {
+		if (0 > size) {
+			throw new IllegalArgumentException("streamingOverlapSize must not be negative.");
+		}
+		streamingOverlapSize = size;
+	}
+
+	/**
+	 * 分割検索で行が分割に収まらない場合に重ねる文字数を取得する。
+	 *
+	 * @return 文字数
+	 */
+	public int getStreamingOverlapSize() {
+		return streamingOverlapSize;
+	}
+
+	/**
+	 * このクラスは、Grepで使用するデフォルトのスレッドファクトリーです。
+	 * <p>
+	 * デーモンスレッドを生成するため、アプリケーションの終了を妨げない。
+	 * </p>
+	 *
+	 * @author Kawakicchi
+	 */
+	private static class GrepThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger number = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "AzukiGrepThread-" + number.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
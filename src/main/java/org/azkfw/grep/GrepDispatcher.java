@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+import org.azkfw.grep.entity.GrepMatchFile;
+import org.azkfw.grep.entity.GrepResult;
+
+/**
+ * このクラスは、Grepイベントをリスナーへ非同期に通知するクラスです。
+ * <p>
+ * サーチャーは通知をキューに入れるだけで処理を続け、リスナーは1本のディスパッチャースレッドから呼び出される。<br/>
+ * 連続して見つかったファイルは最大{@link GrepConfiguration#getDispatchBatchSize()}件ずつまとめて通知する。<br/>
+ * 開始・ファイル検出・終了の通知順序は保持される({@link GrepOverflowPolicy#CALLER_RUNS}で溢れた通知を除く)。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+class GrepDispatcher implements Runnable {
+
+	/** 開始通知 */
+	private static final Object START = new Object();
+
+	/** Grep */
+	private final Grep grep;
+	/** 通知キュー */
+	private final BlockingQueue<Object> queue;
+	/** 1回にまとめて通知する最大件数 */
+	private final int batchSize;
+	/** キューが満杯の場合の動作 */
+	private final GrepOverflowPolicy policy;
+
+	/** ディスパッチャー停止フラグ */
+	private volatile boolean closed;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param grep Grep
+	 * @param configuration 実行設定
+	 */
+	GrepDispatcher(final Grep grep, final GrepConfiguration configuration) {
+		this.grep = grep;
+		this.queue = new ArrayBlockingQueue<Object>(configuration.getDispatchQueueSize());
+		this.batchSize = configuration.getDispatchBatchSize();
+		this.policy = configuration.getOverflowPolicy();
+		this.closed = false;
+	}
+
+	/**
+	 * 開始を通知する。
+	 */
+	void dispatchStart() {
+		put(START);
+	}
+
+	/**
+	 * 見つかったファイルを通知する。
+	 * 
+	 * @param matchFile ファイル情報
+	 */
+	void dispatchFindFile(final GrepMatchFile matchFile) {
+		if (GrepOverflowPolicy.BLOCK == policy) {
+			put(matchFile);
+		} else if (closed || !queue.offer(matchFile)) {
+			if (closed || GrepOverflowPolicy.CALLER_RUNS == policy) {
+				grep.fireFindFiles(Collections.singletonList(matchFile));
+			}
+		}
+	}
+
+	/**
+	 * 終了を通知する。
+	 * <p>
+	 * キュー内の通知を全て配信した後に{@link GrepListener#grepFinished}を呼び出し、Futureを完了する。
+	 * </p>
+	 * 
+	 * @param result Grep結果
+	 * @param future Grep結果のFuture
+	 */
+	void dispatchFinished(final GrepResult result, final CompletableFuture<GrepResult> future) {
+		put(new Finish(result, future));
+	}
+
+	private void put(final Object message) {
+		if (!closed) {
+			try {
+				queue.put(message);
+				return;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// ディスパッチャーが利用できない場合は呼び出し元で通知する
+		handle(message);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				final Object message = queue.take();
+				if (message instanceof GrepMatchFile) {
+					final List<GrepMatchFile> batch = new ArrayList<GrepMatchFile>();
+					batch.add((GrepMatchFile) message);
+					while (batch.size() < batchSize && queue.peek() instanceof GrepMatchFile) {
+						batch.add((GrepMatchFile) queue.poll());
+					}
+					fire(Collections.unmodifiableList(batch));
+				} else {
+					handle(message);
+					if (message instanceof Finish) {
+						break;
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			closed = true;
+
+			// 残った通知を配信する
+			Object message;
+			while (null != (message = queue.poll())) {
+				handle(message);
+			}
+		}
+	}
+
+	private void handle(final Object message) {
+		if (START == message) {
+			try {
+				grep.fireStart();
+			} catch (RuntimeException ex) {
+				ex.printStackTrace();
+			}
+		} else if (message instanceof GrepMatchFile) {
+			fire(Collections.singletonList((GrepMatchFile) message));
+		} else if (message instanceof Finish) {
+			final Finish finish = (Finish) message;
+			grep.fireFinished(finish.result, finish.future);
+		}
+	}
+
+	private void fire(final List<GrepMatchFile> matchFiles) {
+		try {
+			grep.fireFindFiles(matchFiles);
+		} catch (RuntimeException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * このクラスは、終了通知を保持するクラスです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private static class Finish {
+
+		private final GrepResult result;
+		private final CompletableFuture<GrepResult> future;
+
+		private Finish(final GrepResult result, final CompletableFuture<GrepResult> future) {
+			this.result = result;
+			this.future = future;
+		}
+	}
+}
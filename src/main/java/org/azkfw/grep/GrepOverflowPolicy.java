@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+/**
+ * この列挙型は、リスナー通知キューが満杯の場合の動作を定義した列挙型です。
+ * 
+ * @author Kawakicchi
+ */
+public enum GrepOverflowPolicy {
+
+	/**
+	 * ディスパッチャーがキューを空けるまでサーチャーを待機させる。
+	 * <p>
+	 * 通知は欠落せず、順序も保証される。
+	 * </p>
+	 */
+	BLOCK,
+
+	/**
+	 * サーチャースレッドでリスナーを直接呼び出す。
+	 * <p>
+	 * 通知は欠落しないが、キュー内の通知より先に届く場合がある。
+	 * </p>
+	 */
+	CALLER_RUNS,
+
+	/**
+	 * 通知を破棄する。
+	 * <p>
+	 * 破棄したファイルもGrep結果と統計情報には含まれる。
+	 * </p>
+	 */
+	DROP;
+}
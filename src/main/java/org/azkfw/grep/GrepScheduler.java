@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.azkfw.grep.util.GrepUtility;
+
+/**
+ * このクラスは、Grepのスキャナー・サーチャーを実行するスレッドプールを管理するクラスです。
+ * <p>
+ * 1つのインスタンスを複数のGrepで共有できる。<br/>
+ * サーチャーは一定件数ごとにタスクを再投入するため、共有したプール上で各Grepが交互に実行される。<br/>
+ * スキャナー・ディスパッチャーはキューを待機してブロックするため、サーチャーとは別のプールで実行する。
+ * </p>
+ *
+ * @author Kawakicchi
+ */
+class GrepScheduler {
+
+	/** 実行設定 */
+	private final GrepConfiguration configuration;
+
+	/** サーチャー用エグゼキューター(実行設定で未指定の場合に生成) */
+	private ExecutorService searcherExecutor;
+	/** スキャナー用エグゼキューター */
+	private ExecutorService scannerExecutor;
+	/** 並列スキャン用プール(並列数毎) */
+	private final Map<Integer, ForkJoinPool> scannerPools;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param configuration 実行設定
+	 */
+	GrepScheduler(final GrepConfiguration configuration) {
+		this.configuration = configuration;
+		scannerPools = new HashMap<Integer, ForkJoinPool>();
+	}
+
+	/**
+	 * サーチャー用のエグゼキューターを取得する。
+	 * <p>
+	 * 実行設定でエグゼキューターが指定されていない場合、サーチャー数のスレッドプールを生成し以降のGrepで再利用する。
+	 * </p>
+	 *
+	 * @return エグゼキューター
+	 */
+	synchronized ExecutorService getSearcherExecutor() {
+		ExecutorService executor = configuration.getExecutorService();
+		if (GrepUtility.isNull(executor)) {
+			if (GrepUtility.isNull(searcherExecutor)) {
+				searcherExecutor = Executors.newFixedThreadPool(configuration.getSearcherSize(), configuration.getThreadFactory());
+			}
+			executor = searcherExecutor;
+		}
+		return executor;
+	}
+
+	/**
+	 * スキャナー用のエグゼキューターを取得する。
+	 *
+	 * @return エグゼキューター
+	 */
+	synchronized ExecutorService getScannerExecutor() {
+		if (GrepUtility.isNull(scannerExecutor)) {
+			scannerExecutor = Executors.newCachedThreadPool(configuration.getThreadFactory());
+		}
+		return scannerExecutor;
+	}
+
+	/**
+	 * ディスパッチャー用のエグゼキューターを取得する。
+	 * <p>
+	 * スキャナーと同じプールを使用する。
+	 * </p>
+	 *
+	 * @return エグゼキューター
+	 */
+	ExecutorService getDispatcherExecutor() {
+		return getScannerExecutor();
+	}
+
+	/**
+	 * 並列スキャン用のプールを取得する。
+	 * <p>
+	 * プールは並列数毎に生成し、並列数が変更されても実行中のスキャンが使用しているプールは終了しない。
+	 * </p>
+	 *
+	 * @return Fork/Join pool
+	 */
+	synchronized ForkJoinPool getScannerPool() {
+		final int parallelism = configuration.getScannerParallelism();
+		ForkJoinPool pool = scannerPools.get(parallelism);
+		if (GrepUtility.isNull(pool)) {
+			pool = new ForkJoinPool(parallelism);
+			scannerPools.put(parallelism, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * 生成したスレッドプールを終了する。
+	 * <p>
+	 * 実行設定で指定されたエグゼキューターは終了しない。
+	 * </p>
+	 */
+	synchronized void shutdown() {
+		if (GrepUtility.isNotNull(searcherExecutor)) {
+			searcherExecutor.shutdown();
+			searcherExecutor = null;
+		}
+		if (GrepUtility.isNotNull(scannerExecutor)) {
+			scannerExecutor.shutdown();
+			scannerExecutor = null;
+		}
+		for (final ForkJoinPool pool : scannerPools.values()) {
+			pool.shutdown();
+		}
+		scannerPools.clear();
+	}
+}
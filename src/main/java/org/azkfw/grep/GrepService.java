@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep;
+
+import org.azkfw.grep.cash.CashStore;
+import org.azkfw.grep.entity.GrepCondition;
+
+/**
+ * このクラスは、複数のGrepを同時に実行するサービスクラスです。
+ * <p>
+ * Grepはセッション毎に生成し、条件・結果・統計情報はセッション毎に保持する。<br/>
+ * スレッドプールとキャッシュは全セッションで共有する。<br/>
+ * サーチャーは一定件数ごとにタスクを再投入するため、共有したスレッドプール上で各セッションが交互に実行される。
+ * </p>
+ *
+ * @author Kawakicchi
+ */
+public class GrepService {
+
+	/** キャッシュ */
+	private final CashStore store;
+	/** 実行設定 */
+	private final GrepConfiguration configuration;
+	/** スケジューラー */
+	private final GrepScheduler scheduler;
+
+	/**
+	 * コンストラクタ
+	 */
+	public GrepService() {
+		this(new CashStore());
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param store キャッシュ
+	 */
+	public GrepService(final CashStore store) {
+		this(store, new GrepConfiguration());
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param store キャッシュ
+	 * @param configuration 実行設定
+	 */
+	public GrepService(final CashStore store, final GrepConfiguration configuration) {
+		this.store = store;
+		this.configuration = configuration;
+		this.scheduler = new GrepScheduler(configuration);
+	}
+
+	/**
+	 * キャッシュを取得する。
+	 *
+	 * @return キャッシュ
+	 */
+	public CashStore getStore() {
+		return store;
+	}
+
+	/**
+	 * 実行設定を取得する。
+	 *
+	 * @return 実行設定
+	 */
+	public GrepConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * スレッドプールとキャッシュを共有するGrepを生成する。
+	 *
+	 * @return Grep
+	 */
+	public Grep createGrep() {
+		return new Grep(store, configuration, scheduler, true);
+	}
+
+	/**
+	 * 新しいセッションでGrepを開始する。
+	 * <p>
+	 * 結果は{@link Grep#getFuture()}、統計情報は{@link Grep#getStatistics()}から取得する。
+	 * </p>
+	 *
+	 * @param condition Grep条件
+	 * @param listeners Grepリスナー
+	 * @return セッションのGrep
+	 */
+	public Grep submit(final GrepCondition condition, final GrepListener... listeners) {
+		final Grep grep = createGrep();
+		for (GrepListener listener : listeners) {
+			grep.addGrepListener(listener);
+		}
+		grep.submit(condition);
+		return grep;
+	}
+
+	/**
+	 * 共有しているスレッドプールを終了する。
+	 * <p>
+	 * 実行設定で指定されたエグゼキューターは終了しない。
+	 * </p>
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+}
@@ -18,13 +18,40 @@
 package org.azkfw.grep.cash;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.azkfw.grep.entity.GrepTargetFile;
+import org.azkfw.grep.util.LineIndex;
 
 /**
+ * このクラスは、キャッシュするファイル内容を保持するクラスです。
+ * <p>
+ * ファイル内容は{@link CashForm}のいずれかの形式で保持する。<br/>
+ * 文字列以外の形式は{@link #getSource()}の呼び出し毎にデコードし、デコードした文字列・行位置の索引は保持しない。
+ * </p>
+ * <p>
+ * バイト列形式はヒープ外の領域({@link OffHeapBlock})に保持できる。ヒープ外の領域は参照カウントで管理するため、
+ * {@link #getBytes()}で取得したバイト列は{@link #retain()}・{@link #release()}の間でのみ参照すること。
+ * </p>
  * 
  * @author Kawakicchi
  */
 public class CashFile {
 
+	/** 1ファイルあたりの固定のサイズ(オブジェクト・パス等) */
+	private static final long OVERHEAD_WEIGHT = 256;
+
+	/** BOM */
+	private static final char BOM = 65279;
+
 	/** ファイル */
 	private final File file;
 	/** サイズ */
@@ -36,8 +63,24 @@ public class CashFile {
 	/** 改行コード */
 	private final String lineSeparator;
 
-	/** データ */
+	/** バイナリファイルか(ISO-8859-1でデコードしている) */
+	private final boolean binary;
+
+	/** 保持形式 */
+	private final CashForm form;
+	/** データ(文字列形式) */
 	private final String data;
+	/** データ(バイト列形式・圧縮形式) */
+	private final byte[] bytes;
+	/** バイト列の文字セット(バイト列形式・圧縮形式) */
+	private final Charset bytesCharset;
+	/** 圧縮前のバイト数(圧縮形式) */
+	private final int byteLength;
+	/** ヒープ外の領域(ヒープ外に保持するバイト列形式) */
+	private final OffHeapBlock block;
+
+	/** 行位置の索引 */
+	private volatile LineIndex lineIndex;
 
 	/**
 	 * コンストラクタ
@@ -47,13 +90,189 @@ public class CashFile {
 	 * @param data データ
 	 */
 	public CashFile(final File file, final String charset, final String lineSeparator, final String data) {
+		this(new GrepTargetFile(file), charset, lineSeparator, data);
+	}
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * スキャン時に取得したファイル属性をキャッシュの判定に使用する。
+	 * </p>
+	 * 
+	 * @param file Grep対象ファイル
+	 * @param charset 文字コード
+	 * @param lineSeparator 改行コード
+	 * @param data データ
+	 */
+	public CashFile(final GrepTargetFile file, final String charset, final String lineSeparator, final String data) {
+		this(file, charset, lineSeparator, data, false);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param file Grep対象ファイル
+	 * @param charset 文字コード
+	 * @param lineSeparator 改行コード
+	 * @param data データ
+	 * @param binary バイナリファイルの場合、<code>true</code>
+	 */
+	public CashFile(final GrepTargetFile file, final String charset, final String lineSeparator, final String data, final boolean binary) {
+		this(file.getFile(), file.getLength(), file.getLastModified(), charset, lineSeparator, binary, CashForm.TEXT, data, null, null, 0, null);
+	}
+
+	private CashFile(final File file, final long length, final long lastModified, final String charset, final String lineSeparator,
+			final boolean binary, final CashForm form, final String data, final byte[] bytes, final Charset bytesCharset, final int byteLength,
+			final OffHeapBlock block) {
 		this.file = file;
-		this.length = file.length();
-		this.lastModified = file.lastModified();
+		this.length = length;
+		this.lastModified = lastModified;
 		this.charset = charset;
 		this.lineSeparator = lineSeparator;
+		this.binary = binary;
 
+		this.form = form;
 		this.data = data;
+		this.bytes = bytes;
+		this.bytesCharset = bytesCharset;
+		this.byteLength = byteLength;
+		this.block = block;
+	}
+
+	/**
+	 * バイト列形式のファイル内容を生成する。
+	 * <p>
+	 * 先頭のBOMはデコード時に取り除く。
+	 * </p>
+	 * 
+	 * @param file Grep対象ファイル
+	 * @param charset 文字コード
+	 * @param lineSeparator 改行コード
+	 * @param data ファイル内容(バイト列)。呼び出し元で変更しないこと。
+	 * @param binary バイナリファイルの場合、<code>true</code>
+	 * @return ファイル内容
+	 */
+	public static CashFile createBytes(final GrepTargetFile file, final String charset, final String lineSeparator, final byte[] data,
+			final boolean binary) {
+		return new CashFile(file.getFile(), file.getLength(), file.getLastModified(), charset, lineSeparator, binary, CashForm.BYTES, null,
+				data, Charset.forName(charset), data.length, null);
+	}
+
+	/**
+	 * 圧縮形式のファイル内容を生成する。
+	 * <p>
+	 * 先頭のBOMはデコード時に取り除く。
+	 * </p>
+	 * 
+	 * @param file Grep対象ファイル
+	 * @param charset 文字コード
+	 * @param lineSeparator 改行コード
+	 * @param data ファイル内容(バイト列)
+	 * @param binary バイナリファイルの場合、<code>true</code>
+	 * @return ファイル内容
+	 */
+	public static CashFile createCompressed(final GrepTargetFile file, final String charset, final String lineSeparator, final byte[] data,
+			final boolean binary) {
+		return new CashFile(file.getFile(), file.getLength(), file.getLastModified(), charset, lineSeparator, binary, CashForm.COMPRESSED,
+				null, deflate(data), Charset.forName(charset), data.length, null);
+	}
+
+	/**
+	 * ファイル内容を圧縮形式に変換する。
+	 * <p>
+	 * 文字列形式はUTF-8のバイト列に変換して圧縮する。<br/>
+	 * 圧縮形式・ヒープ外に保持している場合、および先頭がBOMの文字列形式(デコード時に取り除かれるため変換できない)の場合、このインスタンスを返す。
+	 * </p>
+	 * 
+	 * @return 圧縮形式のファイル内容
+	 */
+	public CashFile compress() {
+		if (CashForm.TEXT == form) {
+			if (0 < data.length() && data.charAt(0) == BOM) {
+				return this;
+			}
+			final byte[] utf8 = data.getBytes(StandardCharsets.UTF_8);
+			return new CashFile(file, length, lastModified, charset, lineSeparator, binary, CashForm.COMPRESSED, null, deflate(utf8),
+					StandardCharsets.UTF_8, utf8.length, null);
+		} else if (CashForm.BYTES == form && null == block) {
+			return new CashFile(file, length, lastModified, charset, lineSeparator, binary, CashForm.COMPRESSED, null, deflate(bytes),
+					bytesCharset, byteLength, null);
+		}
+		return this;
+	}
+
+	/**
+	 * ファイル内容をヒープ外に保持するバイト列形式に変換する。
+	 * <p>
+	 * 文字列形式はUTF-8のバイト列に変換する。<br/>
+	 * 変換したファイル内容は割り当てた領域の参照を保持するため、不要になった時点で{@link #release()}を呼び出すこと。
+	 * </p>
+	 * 
+	 * @param allocator アロケーター
+	 * @param reclaimer 空き領域が不足した場合に領域を解放する処理。解放した場合は<code>true</code>を返し、割り当てを再試行する。
+	 * @return ヒープ外に保持するファイル内容。変換できない形式(圧縮形式・空のファイル・先頭がBOMの文字列形式)の場合、
+	 *         または領域を割り当てられない場合、<code>null</code>を返す。
+	 * @throws IOException 領域を確保できなかった場合
+	 */
+	public CashFile toOffHeap(final OffHeapAllocator allocator, final BooleanSupplier reclaimer) throws IOException {
+		final byte[] buf;
+		final Charset cs;
+		if (CashForm.TEXT == form) {
+			if (0 < data.length() && data.charAt(0) == BOM) {
+				return null;
+			}
+			buf = data.getBytes(StandardCharsets.UTF_8);
+			cs = StandardCharsets.UTF_8;
+		} else if (CashForm.BYTES == form && null == block) {
+			buf = bytes;
+			cs = bytesCharset;
+		} else {
+			return null;
+		}
+
+		if (!allocator.isAllocatable(buf.length)) {
+			return null;
+		}
+		OffHeapBlock offHeap = allocator.allocate(buf.length);
+		while (null == offHeap && reclaimer.getAsBoolean()) {
+			offHeap = allocator.allocate(buf.length);
+		}
+		if (null == offHeap) {
+			return null;
+		}
+		offHeap.write(buf);
+		return new CashFile(file, length, lastModified, charset, lineSeparator, binary, CashForm.BYTES, null, null, cs, buf.length, offHeap);
+	}
+
+	/**
+	 * ヒープ外に保持しているか判断する。
+	 * 
+	 * @return ヒープ外に保持している場合、<code>true</code>を返す。
+	 */
+	public boolean isOffHeap() {
+		return null != block;
+	}
+
+	/**
+	 * ヒープ外の領域の参照を取得する。
+	 * 
+	 * @return 取得した場合、またはヒープ外に保持していない場合、<code>true</code>を返す。
+	 *         キャッシュから破棄され領域を返却済みの場合、<code>false</code>を返す。
+	 */
+	public boolean retain() {
+		return null == block || block.retain();
+	}
+
+	/**
+	 * ヒープ外の領域の参照を解放する。
+	 * <p>
+	 * ヒープ外に保持していない場合、何もしない。
+	 * </p>
+	 */
+	public void release() {
+		if (null != block) {
+			block.release();
+		}
 	}
 
 	/**
@@ -101,16 +320,188 @@ public class CashFile {
 		return lineSeparator;
 	}
 
+	/**
+	 * バイナリファイルか判断する。
+	 * 
+	 * @return バイナリファイルの場合、<code>true</code>を返す。
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+
+	/**
+	 * 保持形式を取得する。
+	 * 
+	 * @return 保持形式
+	 */
+	public CashForm getForm() {
+		return form;
+	}
+
 	/**
 	 * データを取得する。
+	 * <p>
+	 * 文字列形式以外は呼び出し毎にデコードする。
+	 * </p>
 	 * 
 	 * @return データ
+	 * @throws IllegalStateException ヒープ外の領域を返却済みの場合
 	 */
 	public String getSource() {
-		return data;
+		if (CashForm.TEXT == form) {
+			return data;
+		}
+
+		final String text;
+		if (null != block) {
+			if (!block.retain()) {
+				throw new IllegalStateException("OffHeapBlock is already released.");
+			}
+			try {
+				text = bytesCharset.decode(block.getBuffer()).toString();
+			} finally {
+				block.release();
+			}
+		} else {
+			final byte[] buf = (CashForm.COMPRESSED == form) ? inflate(bytes, byteLength) : bytes;
+			text = new String(buf, bytesCharset);
+		}
+		if (0 < text.length() && text.charAt(0) == BOM) {
+			return text.substring(1);
+		}
+		return text;
+	}
+
+	/**
+	 * デコード前のバイト列を取得する。
+	 * <p>
+	 * 圧縮形式は展開したバイト列を返す。バイト列は{@link #getBytesCharset()}の文字セットでエンコードされている。<br/>
+	 * ヒープ外に保持している場合、ヒープにコピーせずにヒープ外の領域を返す。
+	 * </p>
+	 * 
+	 * @return バイト列(読み取り専用)。文字列形式の場合、<code>null</code>を返す。
+	 */
+	public ByteBuffer getBytes() {
+		if (CashForm.TEXT == form) {
+			return null;
+		}
+		if (null != block) {
+			return block.getBuffer();
+		}
+		final byte[] buf = (CashForm.COMPRESSED == form) ? inflate(bytes, byteLength) : bytes;
+		return ByteBuffer.wrap(buf).asReadOnlyBuffer();
+	}
+
+	/**
+	 * デコード前のバイト列の文字セットを取得する。
+	 * <p>
+	 * 文字列形式を圧縮した場合はUTF-8となるため、{@link #getCharset()}と異なる場合がある。
+	 * </p>
+	 * 
+	 * @return 文字セット。文字列形式の場合、<code>null</code>を返す。
+	 */
+	public Charset getBytesCharset() {
+		return bytesCharset;
+	}
+
+	/**
+	 * キャッシュ上のサイズを取得する。
+	 * <p>
+	 * 文字列形式はデータの文字数×2、それ以外の形式は保持するバイト数に固定のサイズを加えた概算値とする。行位置の索引は含まない。<br/>
+	 * ヒープ外に保持している場合、ヒープ上の固定のサイズのみとする。
+	 * </p>
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getWeight() {
+		if (CashForm.TEXT == form) {
+			return OVERHEAD_WEIGHT + 2L * data.length();
+		}
+		if (null != block) {
+			return OVERHEAD_WEIGHT;
+		}
+		return OVERHEAD_WEIGHT + bytes.length;
+	}
+
+	/**
+	 * 行位置の索引を取得する。
+	 * <p>
+	 * 文字列形式は初回の呼び出し時に生成し、以降はキャッシュと共に再利用する。<br/>
+	 * それ以外の形式は索引がデコードした文字列を参照するため保持せず、呼び出し毎にデコードして生成する。
+	 * </p>
+	 * 
+	 * @return 行位置の索引
+	 */
+	public LineIndex getLineIndex() {
+		if (CashForm.TEXT != form) {
+			return LineIndex.create(getSource());
+		}
+		LineIndex index = lineIndex;
+		if (null == index) {
+			// 複数のスレッドで生成しても結果は同じため、排他は行わない
+			index = LineIndex.create(data);
+			lineIndex = index;
+		}
+		return index;
 	}
 
 	public boolean isMatch(final File file) {
 		return ((file.length() == length && file.lastModified() == lastModified));
 	}
+
+	/**
+	 * キャッシュがファイルと一致するか判断する。
+	 * <p>
+	 * スキャン時に取得したファイル属性で判定するため、ファイルシステムへの問い合わせは行わない。
+	 * </p>
+	 * 
+	 * @param file Grep対象ファイル
+	 * @return 一致する場合、<code>true</code>を返す。
+	 */
+	public boolean isMatch(final GrepTargetFile file) {
+		return ((file.getLength() == length && file.getLastModified() == lastModified));
+	}
+
+	private static byte[] deflate(final byte[] data) {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buf = new byte[Math.max(64, data.length / 2)];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == buf.length) {
+					buf = Arrays.copyOf(buf, buf.length * 2);
+				}
+				length += deflater.deflate(buf, length, buf.length - length);
+			}
+			return Arrays.copyOf(buf, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(final byte[] data, final int length) {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			final byte[] buf = new byte[length];
+			int offset = 0;
+			while (offset < length && !inflater.finished()) {
+				final int read = inflater.inflate(buf, offset, length - offset);
+				if (0 == read && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				offset += read;
+			}
+			if (offset != length) {
+				throw new IllegalStateException("Compressed data is truncated. " + offset + " / " + length);
+			}
+			return buf;
+		} catch (DataFormatException ex) {
+			throw new IllegalStateException(ex);
+		} finally {
+			inflater.end();
+		}
+	}
 }
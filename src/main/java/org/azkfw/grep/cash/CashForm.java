@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+/**
+ * この列挙型は、キャッシュするファイル内容の保持形式を定義した列挙型です。
+ * 
+ * @author Kawakicchi
+ */
+public enum CashForm {
+
+	/**
+	 * デコードした文字列で保持する。
+	 * <p>
+	 * 参照時のデコードは不要だが、1文字あたり2バイトを使用する。
+	 * </p>
+	 */
+	TEXT,
+
+	/**
+	 * ファイルのバイト列と文字セットで保持する。
+	 * <p>
+	 * 参照の度にデコードする。デコード前にバイト列で検索文字列の有無を判定できる。
+	 * </p>
+	 */
+	BYTES,
+
+	/**
+	 * ファイルのバイト列をDeflateで圧縮して保持する。
+	 * <p>
+	 * 参照の度に展開・デコードする。参照頻度の低いファイルに使用する。
+	 * </p>
+	 */
+	COMPRESSED;
+}
@@ -18,44 +18,645 @@
 package org.azkfw.grep.cash;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.azkfw.grep.entity.GrepTargetFile;
 
 /**
+ * このクラスは、ファイル内容のキャッシュを保持するクラスです。
+ * <p>
+ * 保持するファイル内容の合計サイズ({@link CashFile#getWeight()})を上限以下に保ち、
+ * 上限を超えた場合は最も長く参照されていないファイルから破棄する(LRU)。<br/>
+ * 1ファイルのサイズが上限を超えるファイルは保持しないため、巨大なファイルで他のファイルが破棄されることはない。
+ * </p>
+ * <p>
+ * パスのハッシュ値で複数のセグメントに分割し、セグメント毎に排他・LRUを行う。<br/>
+ * 最大サイズはセグメントに均等に割り当てるため、セグメント数は各セグメントに1ファイルの最大サイズが収まる数までとする。<br/>
+ * {@link #getOrLoad(GrepTargetFile, CashLoader)}は同じファイルの読み込みを1回にまとめる。
+ * </p>
+ * <p>
+ * 参照されていないファイルの圧縮({@link #setCompressColdEntries(boolean)})を有効にした場合、
+ * 最大サイズを超えた際に登録したファイル以外を参照されていない順に圧縮形式に変換し、それでも超える場合は参照されていない順に破棄する。
+ * </p>
+ * <p>
+ * ヒープ外の最大サイズを指定した場合、圧縮形式以外のファイル内容はバイト列形式でヒープ外に保持し、ヒープ上にはファイル属性のみを保持する。<br/>
+ * ヒープ外の領域もセグメントに均等に割り当て、領域が不足した場合はヒープ外に保持しているファイル内容を参照されていない順に破棄する。<br/>
+ * 領域を割り当てられないファイル内容はヒープ上に保持する。
+ * </p>
  * 
  * @author Kawakicchi
  */
 public class CashStore {
 
-	private final Map<String, CashFile> mapFiles;
+	/** 最大サイズ(デフォルト)のヒープ最大サイズに対する割合 */
+	private static final int DEFAULT_MAXIMUM_WEIGHT_DIVISOR = 4;
+
+	/** 1ファイルの最大サイズ(デフォルト)の最大サイズに対する割合 */
+	private static final int DEFAULT_MAXIMUM_ENTRY_WEIGHT_DIVISOR = 8;
+
+	/** セグメント数の上限(デフォルト) */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/** 最大サイズ(バイト) */
+	private final long maximumWeight;
+	/** 1ファイルの最大サイズ(バイト) */
+	private final long maximumEntryWeight;
+
+	/** ヒープ外の最大サイズ(バイト) */
+	private final long offHeapCapacity;
+
+	/** セグメント(2のべき乗個) */
+	private final Segment[] segments;
+
+	/** 読み込み中のファイル */
+	private final ConcurrentMap<String, CompletableFuture<CashFile>> loadings;
 
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 最大サイズはヒープ最大サイズの1/4、1ファイルの最大サイズは最大サイズの1/8とする。
+	 * </p>
+	 */
 	public CashStore() {
-		mapFiles = new HashMap<String, CashFile>();
+		this(Runtime.getRuntime().maxMemory() / DEFAULT_MAXIMUM_WEIGHT_DIVISOR);
 	}
 
-	public boolean push(final CashFile file) {
-		boolean result = false;
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 1ファイルの最大サイズは最大サイズの1/8とする。
+	 * </p>
+	 * 
+	 * @param maximumWeight 最大サイズ(バイト)
+	 */
+	public CashStore(final long maximumWeight) {
+		this(maximumWeight, maximumWeight / DEFAULT_MAXIMUM_ENTRY_WEIGHT_DIVISOR);
+	}
 
-		final String path = file.getFile().getAbsolutePath();
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param maximumWeight 最大サイズ(バイト)
+	 * @param maximumEntryWeight 1ファイルの最大サイズ(バイト)
+	 */
+	public CashStore(final long maximumWeight, final long maximumEntryWeight) {
+		this(maximumWeight, maximumEntryWeight, DEFAULT_CONCURRENCY_LEVEL);
+	}
 
-		synchronized (this) {
-			mapFiles.put(path, file);
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param maximumWeight 最大サイズ(バイト)
+	 * @param maximumEntryWeight 1ファイルの最大サイズ(バイト)
+	 * @param concurrencyLevel セグメント数の上限。1の場合、キャッシュ全体で厳密なLRUとなる。
+	 */
+	public CashStore(final long maximumWeight, final long maximumEntryWeight, final int concurrencyLevel) {
+		this(maximumWeight, maximumEntryWeight, concurrencyLevel, 0, null);
+	}
 
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param maximumWeight 最大サイズ(バイト)
+	 * @param maximumEntryWeight 1ファイルの最大サイズ(バイト)
+	 * @param concurrencyLevel セグメント数の上限。1の場合、キャッシュ全体で厳密なLRUとなる。
+	 * @param offHeapCapacity ヒープ外の最大サイズ(バイト)。0の場合、ヒープ外に保持しない。
+	 * @param offHeapDirectory ヒープ外の領域としてマップする一時ファイルを作成するディレクトリ。<code>null</code>の場合、ダイレクトバッファを使用する。
+	 */
+	public CashStore(final long maximumWeight, final long maximumEntryWeight, final int concurrencyLevel, final long offHeapCapacity,
+			final File offHeapDirectory) {
+		if (0 > maximumWeight) {
+			throw new IllegalArgumentException("maximumWeight must not be negative.");
+		}
+		if (0 > maximumEntryWeight) {
+			throw new IllegalArgumentException("maximumEntryWeight must not be negative.");
+		}
+		if (1 > concurrencyLevel) {
+			throw new IllegalArgumentException("concurrencyLevel must be greater than 0.");
 		}
+		if (0 > offHeapCapacity) {
+			throw new IllegalArgumentException("offHeapCapacity must not be negative.");
+		}
+		this.maximumWeight = maximumWeight;
+		this.maximumEntryWeight = Math.min(maximumEntryWeight, maximumWeight);
 
-		return result;
+		// 各セグメントに1ファイルの最大サイズが収まる数(2のべき乗)
+		final long limit = (0 < this.maximumEntryWeight) ? maximumWeight / this.maximumEntryWeight : concurrencyLevel;
+		int size = 1;
+		while (size * 2 <= concurrencyLevel && size * 2 <= limit) {
+			size *= 2;
+		}
+		this.offHeapCapacity = offHeapCapacity;
+		segments = new Segment[size];
+		for (int i = 0; i < size; i++) {
+			final OffHeapAllocator allocator = (0 < offHeapCapacity) ? new OffHeapAllocator(offHeapCapacity / size,
+					OffHeapAllocator.DEFAULT_SLAB_SIZE, offHeapDirectory) : null;
+			segments[i] = new Segment(maximumWeight / size, this.maximumEntryWeight, allocator);
+		}
+		loadings = new ConcurrentHashMap<String, CompletableFuture<CashFile>>();
 	}
 
-	public CashFile getFile(final File file) {
-		CashFile result = null;
+	/**
+	 * ファイル内容を登録する。
+	 * <p>
+	 * 同じファイルの内容は置き換える。登録後に最大サイズを超える場合、参照されていない順に破棄する。<br/>
+	 * ヒープ外に保持する場合、登録するのは複製したファイル内容となる。
+	 * </p>
+	 * 
+	 * @param file ファイル内容
+	 * @return 登録した場合、<code>true</code>を返す。1ファイルの最大サイズを超えるため登録しなかった場合、<code>false</code>を返す。
+	 */
+	public boolean push(final CashFile file) {
+		final String path = file.getFile().getAbsolutePath();
+		return segmentFor(path).push(path, file);
+	}
 
+	public CashFile getFile(final File file) {
 		final String path = file.getAbsolutePath();
+		return segmentFor(path).get(path);
+	}
+
+	/**
+	 * ファイル内容を取得し、キャッシュに無い場合は読み込んで登録する。
+	 * <p>
+	 * 同じファイルを複数のスレッドが同時に読み込もうとした場合、1スレッドのみがローダーを呼び出し、他のスレッドはその結果を待機する。<br/>
+	 * 読み込んだスレッドが結果を返さなかった(<code>null</code>・例外)場合、待機したスレッドは改めて読み込む。<br/>
+	 * キャッシュの内容がファイルと一致しない(ファイルが更新された)場合、読み込み直す。
+	 * </p>
+	 * 
+	 * @param target Grep対象ファイル
+	 * @param loader ローダー
+	 * @return ファイル内容。ローダーが<code>null</code>を返した場合、<code>null</code>を返す。
+	 * @throws IOException ローダーでIO操作に起因する問題が発生した場合
+	 */
+	public CashFile getOrLoad(final GrepTargetFile target, final CashLoader loader) throws IOException {
+		return getOrLoad(target, f -> true, loader);
+	}
+
+	/**
+	 * ファイル内容を取得し、キャッシュに無い場合、または条件を満たさない場合は読み込んで登録する。
+	 * <p>
+	 * 条件を満たさないファイル内容はファイルが更新された場合と同様に読み込み直し、
+	 * ローダーが<code>null</code>を返した場合はキャッシュから破棄する。
+	 * </p>
+	 * 
+	 * @param target Grep対象ファイル
+	 * @param validator キャッシュの内容を使用できるか判断する条件
+	 * @param loader ローダー
+	 * @return ファイル内容。ローダーが<code>null</code>を返した場合、<code>null</code>を返す。
+	 * @throws IOException ローダーでIO操作に起因する問題が発生した場合
+	 * @see #getOrLoad(GrepTargetFile, CashLoader)
+	 */
+	public CashFile getOrLoad(final GrepTargetFile target, final Predicate<CashFile> validator, final CashLoader loader)
+			throws IOException {
+		final String path = target.getFile().getAbsolutePath();
+		final Segment segment = segmentFor(path);
+		while (true) {
+			final CashFile cashFile = segment.get(path);
+			if (null != cashFile && cashFile.isMatch(target) && validator.test(cashFile)) {
+				return cashFile;
+			}
+
+			final CompletableFuture<CashFile> loading = new CompletableFuture<CashFile>();
+			final CompletableFuture<CashFile> other = loadings.putIfAbsent(path, loading);
+			if (null == other) {
+				return load(path, segment, loading, loader);
+			}
 
-		synchronized (this) {
-			result = mapFiles.get(path);
+			// 他のスレッドの読み込みを待機する
+			CashFile result = null;
+			try {
+				result = other.join();
+			} catch (RuntimeException ex) {
+				// 読み込んだスレッドの例外は、このスレッドで読み込み直すことで改めて発生させる
+			}
+			// 完了済みの読み込みは、読み込んだスレッドが取り除く前に取り除いてよい
+			loadings.remove(path, other);
+			if (null != result && result.isMatch(target) && validator.test(result)) {
+				return result;
+			}
 		}
+	}
+
+	private CashFile load(final String path, final Segment segment, final CompletableFuture<CashFile> loading, final CashLoader loader)
+			throws IOException {
+		try {
+			final CashFile cashFile = loader.load();
+			if (null != cashFile) {
+				segment.push(path, cashFile);
+			} else {
+				// キャッシュの内容は最新でない、または条件を満たさないため破棄する
+				segment.remove(path);
+			}
+			loading.complete(cashFile);
+			return cashFile;
+		} catch (IOException | RuntimeException | Error ex) {
+			loading.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			loadings.remove(path, loading);
+		}
+	}
+
+	/**
+	 * 全てのファイル内容を破棄する。
+	 */
+	public void clear() {
+		for (final Segment segment : segments) {
+			segment.clear();
+		}
+	}
 
-		return result;
+	/**
+	 * 保持しているファイル数を取得する。
+	 * 
+	 * @return ファイル数
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * 保持しているファイル内容の合計サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (final Segment segment : segments) {
+			weight += segment.getWeight();
+		}
+		return weight;
 	}
 
+	/**
+	 * 最大サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * 1ファイルの最大サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getMaximumEntryWeight() {
+		return maximumEntryWeight;
+	}
+
+	/**
+	 * 最大サイズを超えたため破棄したファイル数を取得する。
+	 * 
+	 * @return ファイル数
+	 */
+	public long getEvictionCount() {
+		long count = 0;
+		for (final Segment segment : segments) {
+			count += segment.getEvictionCount();
+		}
+		return count;
+	}
+
+	/**
+	 * ヒープ外に保持するか判断する。
+	 * 
+	 * @return ヒープ外に保持する場合、<code>true</code>を返す。
+	 */
+	public boolean isOffHeap() {
+		return 0 < offHeapCapacity;
+	}
+
+	/**
+	 * ヒープ外の最大サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getOffHeapCapacity() {
+		return offHeapCapacity;
+	}
+
+	/**
+	 * ヒープ外に保持しているファイル内容の合計サイズを取得する。
+	 * <p>
+	 * キャッシュから破棄した後、読み込み中のサーチャーが参照を解放していない領域を含む。
+	 * </p>
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getOffHeapUsed() {
+		long used = 0;
+		for (final Segment segment : segments) {
+			if (null != segment.allocator) {
+				used += segment.allocator.getUsed();
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * 参照されていないファイル内容を圧縮するか設定する。
+	 * <p>
+	 * 圧縮はキャッシュへの登録時に登録したスレッドで行う。圧縮中はセグメントを排他しないため、他のスレッドは参照・登録できる。<br/>
+	 * 圧縮中は一時的に最大サイズを超えるが、登録の完了時には最大サイズ以下となる。
+	 * </p>
+	 * 
+	 * @param compress 圧縮する場合、<code>true</code>
+	 */
+	public void setCompressColdEntries(final boolean compress) {
+		for (final Segment segment : segments) {
+			segment.compressColdEntries = compress;
+		}
+	}
+
+	/**
+	 * 参照されていないファイル内容を圧縮するか判断する。
+	 * 
+	 * @return 圧縮する場合、<code>true</code>を返す。
+	 */
+	public boolean isCompressColdEntries() {
+		return segments[0].compressColdEntries;
+	}
+
+	/**
+	 * 最大サイズを超えたため圧縮形式に変換したファイル数を取得する。
+	 * 
+	 * @return ファイル数
+	 */
+	public long getCompressionCount() {
+		long count = 0;
+		for (final Segment segment : segments) {
+			count += segment.getCompressionCount();
+		}
+		return count;
+	}
+
+	private Segment segmentFor(final String path) {
+		final int hash = path.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+	}
+
+	/**
+	 * このクラスは、キャッシュの1セグメントです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private static final class Segment {
+
+		/** 最大サイズ(バイト) */
+		private final long maximumWeight;
+		/** 1ファイルの最大サイズ(バイト) */
+		private final long maximumEntryWeight;
+
+		/** ヒープ外のアロケーター(ヒープ外に保持しない場合、<code>null</code>) */
+		private final OffHeapAllocator allocator;
+
+		/** パスをキーとしたファイル内容(参照順) */
+		private final LinkedHashMap<String, Node> mapFiles;
+
+		/** 保持しているファイル内容の合計サイズ(バイト) */
+		private long weight;
+		/** 破棄したファイル数 */
+		private long evictionCount;
+		/** 圧縮形式に変換したファイル数 */
+		private long compressionCount;
+
+		/** 参照されていないファイル内容を圧縮するか */
+		private volatile boolean compressColdEntries;
+
+		private Segment(final long maximumWeight, final long maximumEntryWeight, final OffHeapAllocator allocator) {
+			this.maximumWeight = maximumWeight;
+			this.maximumEntryWeight = maximumEntryWeight;
+			this.allocator = allocator;
+			mapFiles = new LinkedHashMap<String, Node>(16, 0.75f, true);
+			weight = 0;
+			evictionCount = 0;
+			compressionCount = 0;
+			compressColdEntries = false;
+		}
+
+		/**
+		 * ファイル内容を登録する。
+		 * <p>
+		 * 1ファイルの最大サイズは変換前のファイル内容で判定し、超える場合はヒープ外に変換せず、他のファイル内容も破棄しない。<br/>
+		 * ヒープ外への変換(複製)はセグメントの排他を解放して行う。<br/>
+		 * 最大サイズを超えた場合、圧縮するのであれば登録したファイル以外の未圧縮のファイル内容を参照されていない順に圧縮する。<br/>
+		 * 圧縮はセグメントの排他を解放して行い、圧縮中に置き換え・破棄されていない場合のみ圧縮形式に置き換える。<br/>
+		 * 圧縮で最大サイズ以下にならない場合、参照されていない順に破棄する。
+		 * </p>
+		 * 
+		 * @param path パス
+		 * @param file ファイル内容
+		 * @return 登録した場合、<code>true</code>を返す。
+		 */
+		private boolean push(final String path, final CashFile file) {
+			if (file.getWeight() > maximumEntryWeight) {
+				synchronized (this) {
+					// 古い内容は最新でないため破棄する
+					removeNode(mapFiles.remove(path));
+				}
+				return false;
+			}
+
+			final CashFile stored = (null != allocator) ? toOffHeap(file) : file;
+			final Node node = new Node(stored);
+			synchronized (this) {
+				// 古い内容は最新でないため破棄する
+				removeNode(mapFiles.remove(path));
+
+				mapFiles.put(path, node);
+				weight += stored.getWeight();
+			}
+
+			while (compressColdEntries) {
+				final Node cold;
+				final CashFile snapshot;
+				synchronized (this) {
+					if (weight <= maximumWeight) {
+						break;
+					}
+					cold = getColdEntry(node);
+					if (null == cold) {
+						break;
+					}
+					snapshot = cold.file;
+				}
+
+				final CashFile compressed = snapshot.compress();
+
+				synchronized (this) {
+					if (cold.removed || cold.file != snapshot) {
+						continue;
+					}
+					if (compressed.getWeight() < snapshot.getWeight()) {
+						weight += compressed.getWeight() - snapshot.getWeight();
+						cold.file = compressed;
+						compressionCount++;
+					} else {
+						cold.incompressible = true;
+					}
+				}
+			}
+
+			synchronized (this) {
+				evict();
+			}
+			return true;
+		}
+
+		/**
+		 * 圧縮するファイル内容のうち、最も長く参照されていないものを取得する。
+		 * 
+		 * @param excluded 除外するファイル内容(登録したファイル内容)
+		 * @return ファイル内容。無い場合、<code>null</code>を返す。
+		 */
+		private Node getColdEntry(final Node excluded) {
+			for (final Node node : mapFiles.values()) {
+				if (node != excluded && !node.incompressible && CashForm.COMPRESSED != node.file.getForm() && !node.file.isOffHeap()) {
+					return node;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * ファイル内容をヒープ外に保持する形式に変換する。
+		 * <p>
+		 * 領域が不足する場合、ヒープ外に保持しているファイル内容を参照されていない順に破棄する。<br/>
+		 * セグメントの排他を取得せずに呼び出し、破棄する間のみ排他を取得する。
+		 * </p>
+		 * 
+		 * @param file ファイル内容
+		 * @return ヒープ外に保持するファイル内容。変換できない場合、引数のファイル内容を返す。
+		 */
+		private CashFile toOffHeap(final CashFile file) {
+			try {
+				final CashFile offHeap = file.toOffHeap(allocator, () -> {
+					synchronized (this) {
+						return evictOffHeap();
+					}
+				});
+				return (null != offHeap) ? offHeap : file;
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				return file;
+			}
+		}
+
+		/**
+		 * ヒープ外に保持しているファイル内容のうち、最も長く参照されていないものを破棄する。
+		 * 
+		 * @return 破棄した場合、<code>true</code>を返す。
+		 */
+		private boolean evictOffHeap() {
+			final Iterator<Node> it = mapFiles.values().iterator();
+			while (it.hasNext()) {
+				final Node eldest = it.next();
+				if (eldest.file.isOffHeap()) {
+					it.remove();
+					removeNode(eldest);
+					evictionCount++;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private synchronized CashFile get(final String path) {
+			final Node node = mapFiles.get(path);
+			return (null != node) ? node.file : null;
+		}
+
+		private synchronized void remove(final String path) {
+			removeNode(mapFiles.remove(path));
+		}
+
+		private synchronized void clear() {
+			for (final Node node : mapFiles.values()) {
+				node.removed = true;
+				node.file.release();
+			}
+			mapFiles.clear();
+			weight = 0;
+		}
+
+		private synchronized int size() {
+			return mapFiles.size();
+		}
+
+		private synchronized long getWeight() {
+			return weight;
+		}
+
+		private synchronized long getEvictionCount() {
+			return evictionCount;
+		}
+
+		private synchronized long getCompressionCount() {
+			return compressionCount;
+		}
+
+		/**
+		 * マップから取り除いたファイル内容を破棄する。
+		 * 
+		 * @param node ファイル内容。<code>null</code>の場合、何もしない。
+		 */
+		private void removeNode(final Node node) {
+			if (null != node) {
+				node.removed = true;
+				weight -= node.file.getWeight();
+				node.file.release();
+			}
+		}
+
+		/**
+		 * 最大サイズ以下になるまで、参照されていない順にファイル内容を破棄する。
+		 */
+		private void evict() {
+			final Iterator<Node> it = mapFiles.values().iterator();
+			while (weight > maximumWeight && it.hasNext()) {
+				final Node node = it.next();
+				it.remove();
+				removeNode(node);
+				evictionCount++;
+			}
+		}
+	}
+
+	/**
+	 * このクラスは、セグメント内のファイル内容を保持するクラスです。
+	 * <p>
+	 * 圧縮形式への置き換えで参照順を変更しないよう、マップの値は置き換えずにこのクラスの内容を置き換える。<br/>
+	 * 全てのフィールドはセグメントの排他内で参照・更新する。
+	 * </p>
+	 * 
+	 * @author Kawakicchi
+	 */
+	private static final class Node {
+
+		/** ファイル内容 */
+		private CashFile file;
+		/** セグメントから取り除いたか */
+		private boolean removed;
+		/** 圧縮してもサイズが小さくならないか */
+		private boolean incompressible;
+
+		private Node(final CashFile file) {
+			this.file = file;
+			removed = false;
+			incompressible = false;
+		}
+	}
 }
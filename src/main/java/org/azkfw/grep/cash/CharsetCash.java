@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.azkfw.grep.entity.GrepTargetFile;
+
+/**
+ * このクラスは、ファイル毎に判別した文字セットを保持するキャッシュクラスです。
+ * <p>
+ * ファイルのパス・サイズ・最終更新日時と判別結果を保持し、ファイルが変更されていなければ判別を省略する。<br/>
+ * ファイル内容のキャッシュ({@link CashStore})と異なり、内容を保持しないため多数のファイルを保持できる。<br/>
+ * 保存先のファイルを指定した場合、生成時に読み込み、{@link #save()}で書き込む。
+ * </p>
+ * <p>
+ * 保存形式は1行1ファイルのタブ区切り(サイズ、最終更新日時、文字セット、パス)とする。<br/>
+ * 文字セットを判別できなかったファイルは空の文字セットを保持する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public class CharsetCash {
+
+	/** 保存先のファイル */
+	private final File file;
+	/** パスをキーとしたエントリー */
+	private final Map<String, Entry> entries;
+
+	/** 保存後に変更があったか */
+	private volatile boolean modified;
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 保存しないキャッシュを生成する。
+	 * </p>
+	 */
+	public CharsetCash() {
+		this(null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 保存先のファイルが存在する場合は読み込む。読み込めない場合は空のキャッシュとする。
+	 * </p>
+	 * 
+	 * @param file 保存先のファイル
+	 */
+	public CharsetCash(final File file) {
+		this.file = file;
+		this.entries = new ConcurrentHashMap<String, Entry>();
+		if (null != file && file.isFile()) {
+			try {
+				load(file);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+		modified = false;
+	}
+
+	/**
+	 * 文字セットを取得する。
+	 * 
+	 * @param target Grep対象ファイル
+	 * @return 文字セット。キャッシュに無い、またはファイルが変更されている場合、<code>null</code>を返す。
+	 *         判別できなかったファイルの場合、空文字列を返す。
+	 */
+	public String get(final GrepTargetFile target) {
+		final Entry entry = entries.get(target.getFile().getAbsolutePath());
+		if (null != entry && entry.length == target.getLength() && entry.lastModified == target.getLastModified()) {
+			return entry.charset;
+		}
+		return null;
+	}
+
+	/**
+	 * 文字セットを登録する。
+	 * 
+	 * @param target Grep対象ファイル
+	 * @param charset 文字セット。判別できなかった場合、<code>null</code>。
+	 */
+	public void put(final GrepTargetFile target, final String charset) {
+		entries.put(target.getFile().getAbsolutePath(),
+				new Entry(target.getLength(), target.getLastModified(), (null == charset) ? "" : charset));
+		modified = true;
+	}
+
+	/**
+	 * 保持しているファイル数を取得する。
+	 * 
+	 * @return ファイル数
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * ファイルから読み込み、保持している内容に追加する。
+	 * 
+	 * @param file ファイル
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	public void load(final File file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while (null != (line = reader.readLine())) {
+				final String[] values = line.split("\t", 4);
+				if (4 != values.length) {
+					continue;
+				}
+				try {
+					entries.put(values[3], new Entry(Long.parseLong(values[0]), Long.parseLong(values[1]), values[2]));
+				} catch (NumberFormatException ex) {
+					// 不正な行は無視する
+				}
+			}
+		}
+		modified = true;
+	}
+
+	/**
+	 * 変更があった場合、保存先のファイルに書き込む。
+	 * 
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	public void save() throws IOException {
+		if (null != file && modified) {
+			save(file);
+		}
+	}
+
+	/**
+	 * ファイルに書き込む。
+	 * <p>
+	 * 一時ファイルに書き込んでから置き換えるため、書き込み中に中断しても元のファイルは壊れない。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	public synchronized void save(final File file) throws IOException {
+		modified = false;
+
+		final Path path = file.getAbsoluteFile().toPath();
+		final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+				final Entry value = entry.getValue();
+				writer.write(value.length + "\t" + value.lastModified + "\t" + value.charset + "\t" + entry.getKey());
+				writer.newLine();
+			}
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * このクラスは、1ファイル分の判別結果です。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private static final class Entry {
+
+		/** サイズ */
+		private final long length;
+		/** 最終更新日時 */
+		private final long lastModified;
+		/** 文字セット */
+		private final String charset;
+
+		private Entry(final long length, final long lastModified, final String charset) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.charset = charset;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * このクラスは、ヒープ外のバッファから領域を割り当てるクラスです。
+ * <p>
+ * 一定サイズのスラブ(ダイレクトバッファ、またはマップした一時ファイル)を必要になった時点で確保し、
+ * スラブ毎の空き領域から最初に収まる領域を割り当てる(ファーストフィット)。<br/>
+ * 解放した領域は隣接する空き領域と結合する。スラブは解放しない。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public class OffHeapAllocator {
+
+	/** スラブサイズ(デフォルト) */
+	public static final int DEFAULT_SLAB_SIZE = 64 * 1024 * 1024;
+
+	/** 最大サイズ(バイト) */
+	private final long capacity;
+	/** スラブサイズ(バイト) */
+	private final int slabSize;
+	/** スラブを確保するディレクトリ(ダイレクトバッファの場合、<code>null</code>) */
+	private final File directory;
+
+	/** スラブ */
+	private final List<Slab> slabs;
+
+	/** 確保したスラブの合計サイズ(バイト) */
+	private long allocatedCapacity;
+	/** 割り当て中の合計サイズ(バイト) */
+	private long used;
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * スラブはダイレクトバッファで確保する。
+	 * </p>
+	 * 
+	 * @param capacity 最大サイズ(バイト)
+	 */
+	public OffHeapAllocator(final long capacity) {
+		this(capacity, DEFAULT_SLAB_SIZE, null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param capacity 最大サイズ(バイト)
+	 * @param slabSize スラブサイズ(バイト)。最大サイズを超える場合、最大サイズとする。
+	 * @param directory スラブとしてマップする一時ファイルを作成するディレクトリ。<code>null</code>の場合、ダイレクトバッファで確保する。
+	 */
+	public OffHeapAllocator(final long capacity, final int slabSize, final File directory) {
+		if (0 > capacity) {
+			throw new IllegalArgumentException("capacity must not be negative.");
+		}
+		if (1 > slabSize) {
+			throw new IllegalArgumentException("slabSize must be greater than 0.");
+		}
+		this.capacity = capacity;
+		this.slabSize = (int) Math.min(slabSize, capacity);
+		this.directory = directory;
+		slabs = new ArrayList<Slab>();
+		allocatedCapacity = 0;
+		used = 0;
+	}
+
+	/**
+	 * 指定サイズの領域を割り当て可能か判断する。
+	 * <p>
+	 * 他の領域の解放を待たずに割り当てられるかではなく、スラブに収まるサイズかを判断する。
+	 * </p>
+	 * 
+	 * @param length サイズ(バイト)
+	 * @return 割り当て可能な場合、<code>true</code>を返す。
+	 */
+	public boolean isAllocatable(final int length) {
+		return 0 < length && length <= slabSize;
+	}
+
+	/**
+	 * 領域を割り当てる。
+	 * 
+	 * @param length サイズ(バイト)
+	 * @return 割り当てた領域。空き領域が無い場合、<code>null</code>を返す。
+	 * @throws IOException スラブとする一時ファイルを作成できなかった場合
+	 */
+	public synchronized OffHeapBlock allocate(final int length) throws IOException {
+		if (!isAllocatable(length)) {
+			return null;
+		}
+		for (final Slab slab : slabs) {
+			final OffHeapBlock block = slab.allocate(length);
+			if (null != block) {
+				used += length;
+				return block;
+			}
+		}
+		if (allocatedCapacity + length > capacity) {
+			return null;
+		}
+		final Slab slab = newSlab((int) Math.min(slabSize, capacity - allocatedCapacity));
+		slabs.add(slab);
+		allocatedCapacity += slab.buffer.capacity();
+
+		final OffHeapBlock block = slab.allocate(length);
+		used += length;
+		return block;
+	}
+
+	/**
+	 * 領域を解放する。
+	 * 
+	 * @param block 領域
+	 */
+	synchronized void free(final OffHeapBlock block) {
+		((Slab) block.getOwner()).free(block.getOffset(), block.getLength());
+		used -= block.getLength();
+	}
+
+	/**
+	 * 最大サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 割り当て中の合計サイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public synchronized long getUsed() {
+		return used;
+	}
+
+	private Slab newSlab(final int size) throws IOException {
+		if (null == directory) {
+			return new Slab(ByteBuffer.allocateDirect(size));
+		}
+
+		final File file = File.createTempFile("grep-cash", ".slab", directory);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(size);
+			// マップはチャネルを閉じた後も有効
+			return new Slab(raf.getChannel().map(MapMode.READ_WRITE, 0, size));
+		} finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * このクラスは、1スラブ分の空き領域を管理するクラスです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private final class Slab {
+
+		/** バッファ */
+		private final ByteBuffer buffer;
+
+		/** 空き領域(オフセット→サイズ) */
+		private final TreeMap<Integer, Integer> frees;
+
+		private Slab(final ByteBuffer buffer) {
+			this.buffer = buffer;
+			frees = new TreeMap<Integer, Integer>();
+			frees.put(0, buffer.capacity());
+		}
+
+		private OffHeapBlock allocate(final int length) {
+			for (final Map.Entry<Integer, Integer> free : frees.entrySet()) {
+				final int offset = free.getKey();
+				final int size = free.getValue();
+				if (length <= size) {
+					frees.remove(offset);
+					if (length < size) {
+						frees.put(offset + length, size - length);
+					}
+					final ByteBuffer slice = buffer.duplicate();
+					slice.position(offset);
+					slice.limit(offset + length);
+					return new OffHeapBlock(OffHeapAllocator.this, this, slice.slice(), offset);
+				}
+			}
+			return null;
+		}
+
+		private void free(final int offset, final int length) {
+			int start = offset;
+			int end = offset + length;
+			final Map.Entry<Integer, Integer> lower = frees.lowerEntry(start);
+			if (null != lower && lower.getKey() + lower.getValue() == start) {
+				start = lower.getKey();
+				frees.remove(start);
+			}
+			final Integer higher = frees.get(end);
+			if (null != higher) {
+				frees.remove(end);
+				end += higher;
+			}
+			frees.put(start, end - start);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * このクラスは、{@link OffHeapAllocator}から割り当てたヒープ外の領域です。
+ * <p>
+ * 参照カウントで管理し、割り当て時の参照(キャッシュの保持)と読み込み中の参照が全て解放された時点で領域を返却する。<br/>
+ * 返却した領域は他のファイル内容に再利用されるため、読み込む前に{@link #retain()}で参照を取得すること。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class OffHeapBlock {
+
+	/** アロケーター */
+	private final OffHeapAllocator allocator;
+	/** 割り当て元のスラブ */
+	private final Object owner;
+	/** 領域 */
+	private final ByteBuffer buffer;
+	/** スラブ内のオフセット */
+	private final int offset;
+
+	/** 参照カウント */
+	private final AtomicInteger references;
+
+	OffHeapBlock(final OffHeapAllocator allocator, final Object owner, final ByteBuffer buffer, final int offset) {
+		this.allocator = allocator;
+		this.owner = owner;
+		this.buffer = buffer;
+		this.offset = offset;
+		references = new AtomicInteger(1);
+	}
+
+	/**
+	 * 領域の内容を取得する。
+	 * 
+	 * @return 領域の内容(読み取り専用)
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * 領域のサイズを取得する。
+	 * 
+	 * @return サイズ(バイト)
+	 */
+	public int getLength() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * 参照を取得する。
+	 * 
+	 * @return 取得した場合、<code>true</code>を返す。既に領域を返却している場合、<code>false</code>を返す。
+	 */
+	public boolean retain() {
+		while (true) {
+			final int count = references.get();
+			if (0 >= count) {
+				return false;
+			}
+			if (references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 参照を解放する。
+	 * <p>
+	 * 全ての参照を解放した場合、領域を返却する。
+	 * </p>
+	 */
+	public void release() {
+		final int count = references.decrementAndGet();
+		if (0 == count) {
+			allocator.free(this);
+		} else if (0 > count) {
+			throw new IllegalStateException("OffHeapBlock is already released.");
+		}
+	}
+
+	/**
+	 * 領域を書き込む。
+	 * 
+	 * @param data 内容
+	 */
+	void write(final byte[] data) {
+		final ByteBuffer dst = buffer.duplicate();
+		dst.put(data, 0, Math.min(data.length, dst.remaining()));
+	}
+
+	Object getOwner() {
+		return owner;
+	}
+
+	int getOffset() {
+		return offset;
+	}
+}
@@ -18,73 +18,217 @@
 package org.azkfw.grep.entity;
 
 import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * このクラスは、Grepの統計情報を集計するクラスです。
+ * <p>
+ * 各カウンターは{@link LongAdder}で保持するため、スキャナー・サーチャーの複数スレッドからロックせずに更新できる。<br/>
+ * 集計中もいつでも参照できる。
+ * </p>
+ * 
  * @author Kawakicchi
- *
  */
 public class BasicGrepStatistics implements GrepStatistics {
 
-	private long searchFileCount;
-	private long searchDirectoryCount;
+	private final LongAdder searchFileCount;
+	private final LongAdder searchDirectoryCount;
+
+	private final LongAdder targetFileCount;
+	private final LongAdder hitFileCount;
+	private final LongAdder totalTargetFileLength;
+
+	private final LongAdder processedFileCount;
+	private final LongAdder skippedBinaryFileCount;
+	private final LongAdder matchWordCount;
+	private final LongAdder readByteLength;
+	private final LongAdder decodeByteLength;
 
-	private long targetFileCount;
-	private long hitFileCount;
-	private long totalTargetFileLength;
+	/** 開始時間(ナノ秒) */
+	private volatile long startNanoTime;
+	/** 終了時間(ナノ秒) */
+	private volatile long endNanoTime;
+	/** 集計終了フラグ */
+	private volatile boolean finished;
 
 	public BasicGrepStatistics() {
+		searchFileCount = new LongAdder();
+		searchDirectoryCount = new LongAdder();
+
+		targetFileCount = new LongAdder();
+		hitFileCount = new LongAdder();
+		totalTargetFileLength = new LongAdder();
+
+		processedFileCount = new LongAdder();
+		skippedBinaryFileCount = new LongAdder();
+		matchWordCount = new LongAdder();
+		readByteLength = new LongAdder();
+		decodeByteLength = new LongAdder();
+
 		reset();
 	}
 
 	@Override
 	public long getSearchFileCount() {
-		return searchFileCount;
+		return searchFileCount.sum();
 	}
 
 	@Override
 	public long getSearchDirectoryCount() {
-		return searchDirectoryCount;
+		return searchDirectoryCount.sum();
 	}
 
 	@Override
 	public long getTargetFileCount() {
-		return targetFileCount;
+		return targetFileCount.sum();
 	}
 
 	@Override
 	public long getHitFileCount() {
-		return hitFileCount;
+		return hitFileCount.sum();
 	}
 
 	@Override
 	public long getTotalTargetFileLength() {
-		return totalTargetFileLength;
+		return totalTargetFileLength.sum();
+	}
+
+	@Override
+	public long getProcessedFileCount() {
+		return processedFileCount.sum();
+	}
+
+	@Override
+	public long getSkippedBinaryFileCount() {
+		return skippedBinaryFileCount.sum();
+	}
+
+	@Override
+	public long getMatchWordCount() {
+		return matchWordCount.sum();
+	}
+
+	@Override
+	public long getReadByteLength() {
+		return readByteLength.sum();
+	}
+
+	@Override
+	public long getDecodeByteLength() {
+		return decodeByteLength.sum();
+	}
+
+	@Override
+	public long getElapsedNanoTime() {
+		return (finished ? endNanoTime : System.nanoTime()) - startNanoTime;
+	}
+
+	@Override
+	public double getFileRate() {
+		return perSecond(getProcessedFileCount());
+	}
+
+	@Override
+	public double getByteRate() {
+		return perSecond(getReadByteLength());
+	}
+
+	@Override
+	public double getMatchRate() {
+		return perSecond(getMatchWordCount());
+	}
+
+	private double perSecond(final long count) {
+		final long elapsed = getElapsedNanoTime();
+		if (0 >= elapsed) {
+			return 0.0;
+		}
+		return (double) count * 1000000000.0 / (double) elapsed;
 	}
 
 	public void reset() {
-		searchFileCount = 0;
-		searchDirectoryCount = 0;
+		searchFileCount.reset();
+		searchDirectoryCount.reset();
+
+		targetFileCount.reset();
+		hitFileCount.reset();
+		totalTargetFileLength.reset();
+
+		processedFileCount.reset();
+		skippedBinaryFileCount.reset();
+		matchWordCount.reset();
+		readByteLength.reset();
+		decodeByteLength.reset();
+
+		finished = false;
+		startNanoTime = System.nanoTime();
+		endNanoTime = startNanoTime;
+	}
 
-		targetFileCount = 0;
-		hitFileCount = 0;
-		totalTargetFileLength = 0;
+	/**
+	 * 集計を終了する。
+	 * <p>
+	 * 以降、経過時間とスループットは終了時点の値で固定される。
+	 * </p>
+	 */
+	public void finish() {
+		endNanoTime = System.nanoTime();
+		finished = true;
 	}
 
 	public void countupSearchFile(final File file) {
-		searchFileCount++;
+		searchFileCount.increment();
 	}
 
 	public void countupSearchDirectory(final File directory) {
-		searchDirectoryCount++;
+		searchDirectoryCount.increment();
 	}
 
-	public void countupTargetFile(final File file) {
-		targetFileCount++;
-		totalTargetFileLength += file.length();
+	public void countupTargetFile(final GrepTargetFile file) {
+		targetFileCount.increment();
+		totalTargetFileLength.add(file.getLength());
 	}
 
 	public void countupHitFile(final File file) {
-		hitFileCount++;
+		hitFileCount.increment();
+	}
+
+	/**
+	 * 検索を完了したファイルを集計する。
+	 * 
+	 * @param file ファイル
+	 * @param matchWords マッチしたワード数
+	 */
+	public void countupProcessedFile(final File file, final long matchWords) {
+		processedFileCount.increment();
+		matchWordCount.add(matchWords);
+	}
+
+	/**
+	 * 検索せずにスキップしたバイナリファイルを集計する。
+	 * 
+	 * @param file ファイル
+	 */
+	public void countupSkippedBinaryFile(final File file) {
+		skippedBinaryFileCount.increment();
+	}
+
+	/**
+	 * ファイルから読み込んだバイト数を集計する。
+	 * 
+	 * @param length バイト数
+	 */
+	public void countupReadByte(final long length) {
+		readByteLength.add(length);
+	}
+
+	/**
+	 * 文字列にデコードしたバイト数を集計する。
+	 * 
+	 * @param length バイト数
+	 */
+	public void countupDecodeByte(final long length) {
+		decodeByteLength.add(length);
 	}
 
 }
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+import java.util.regex.Pattern;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlValue;
+
+import org.azkfw.grep.util.FormatUtility;
+
+/**
+ * このクラスは、ファイル名に対応する文字セットを保持するエンティティクラスです。
+ * <p>
+ * ファイル名がパターンに一致するファイルは、文字セットの判別を行わずにこの文字セットで読み込む。<br/>
+ * パターンは{@link FileNamePattern}と同じ書式(例: <code>*.java</code>)で指定する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public class CharsetHint {
+
+	/** ファイル名パターン */
+	private String value;
+	/** 文字セット */
+	private String charset;
+
+	private Pattern pattern;
+
+	public CharsetHint() {
+
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param value ファイル名パターン
+	 * @param charset 文字セット
+	 */
+	public CharsetHint(final String value, final String charset) {
+		setValue(value);
+		setCharset(charset);
+	}
+
+	public void setValue(final String value) {
+		this.value = value;
+
+		this.pattern = null;
+		if (null != value && 0 < value.length()) {
+			this.pattern = FormatUtility.getSimpleMatchPattern(value);
+		}
+	}
+
+	@XmlAttribute(name = "pattern")
+	public String getValue() {
+		return value;
+	}
+
+	public void setCharset(final String charset) {
+		this.charset = charset;
+	}
+
+	@XmlValue
+	public String getCharset() {
+		return charset;
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * ファイル名がパターンに一致するか判断する。
+	 * 
+	 * @param name ファイル名
+	 * @return 一致する場合、<code>true</code>を返す。
+	 */
+	public boolean matches(final String name) {
+		return null != pattern && pattern.matcher(name).matches();
+	}
+}
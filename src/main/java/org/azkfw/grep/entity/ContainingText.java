@@ -19,16 +19,32 @@ package org.azkfw.grep.entity;
 
 import java.util.regex.Pattern;
 
+import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlValue;
 
+import org.azkfw.grep.matcher.GrepPattern;
+import org.azkfw.grep.matcher.LiteralGrepPattern;
+import org.azkfw.grep.matcher.RegexGrepPattern;
+
 /**
+ * このクラスは、検索文字列を保持するエンティティクラスです。
+ * <p>
+ * 大文字・小文字を区別せずに検索する。<br/>
+ * 正規表現のメタ文字を含まない文字列、またはリテラル指定の文字列は固定文字列として検索する。
+ * </p>
  * 
  * @author Kawakicchi
  */
 public class ContainingText {
 
+	/** 正規表現のメタ文字 */
+	private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
 	private String value;
+	private boolean literal;
+
 	private Pattern pattern;
+	private GrepPattern grepPattern;
 
 	public ContainingText() {
 
@@ -38,13 +54,20 @@ public class ContainingText {
 		setValue(value);
 	}
 
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param value 検索文字列
+	 * @param literal 検索文字列を正規表現ではなく固定文字列として扱う場合、<code>true</code>
+	 */
+	public ContainingText(final String value, final boolean literal) {
+		this.literal = literal;
+		setValue(value);
+	}
+
 	public void setValue(final String value) {
 		this.value = value;
-
-		this.pattern = null;
-		if (null != value && 0 < value.length()) {
-			this.pattern = Pattern.compile(value, Pattern.CASE_INSENSITIVE);
-		}
+		compile();
 	}
 
 	@XmlValue
@@ -52,7 +75,72 @@ public class ContainingText {
 		return value;
 	}
 
+	/**
+	 * 検索文字列を固定文字列として扱うか設定する。
+	 * 
+	 * @param literal 固定文字列として扱う場合、<code>true</code>
+	 */
+	public void setLiteral(final boolean literal) {
+		this.literal = literal;
+		compile();
+	}
+
+	/**
+	 * 検索文字列を固定文字列として扱うか判断する。
+	 * <p>
+	 * <code>false</code>の場合でも、メタ文字を含まない検索文字列は固定文字列として検索する。
+	 * </p>
+	 * 
+	 * @return 固定文字列として扱う場合、<code>true</code>を返す。
+	 */
+	@XmlAttribute(name = "literal")
+	public boolean isLiteral() {
+		return literal;
+	}
+
 	public Pattern getPattern() {
 		return pattern;
 	}
+
+	/**
+	 * 検索パターンを取得する。
+	 * 
+	 * @return 検索パターン。検索文字列が空の場合、<code>null</code>を返す。
+	 */
+	public GrepPattern getGrepPattern() {
+		return grepPattern;
+	}
+
+	private void compile() {
+		pattern = null;
+		grepPattern = null;
+		if (null != value && 0 < value.length()) {
+			if (literal) {
+				pattern = Pattern.compile(Pattern.quote(value), Pattern.CASE_INSENSITIVE);
+				grepPattern = new LiteralGrepPattern(value, true);
+			} else {
+				pattern = Pattern.compile(value, Pattern.CASE_INSENSITIVE);
+				if (isLiteralText(value)) {
+					grepPattern = new LiteralGrepPattern(value, true);
+				} else {
+					grepPattern = new RegexGrepPattern(pattern);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 正規表現のメタ文字を含まない文字列か判断する。
+	 * 
+	 * @param text 文字列
+	 * @return メタ文字を含まない場合、<code>true</code>を返す。
+	 */
+	private static boolean isLiteralText(final String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (0 <= REGEX_META_CHARACTERS.indexOf(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
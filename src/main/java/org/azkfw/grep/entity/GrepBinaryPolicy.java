@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+/**
+ * この列挙型は、バイナリファイルの扱いを定義した列挙型です。
+ * <p>
+ * ファイルの先頭部分にNULバイトを含む、または制御文字の割合が高いファイルをバイナリファイルとみなす。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public enum GrepBinaryPolicy {
+
+	/**
+	 * 検索しない。
+	 * <p>
+	 * 文字セットの判別・デコードを行わず、一致しないファイルとして扱う。
+	 * </p>
+	 */
+	SKIP,
+
+	/**
+	 * バイト列として検索する。
+	 * <p>
+	 * 文字セットを判別せず、1バイトを1文字としてISO-8859-1でデコードして検索する。
+	 * </p>
+	 */
+	SEARCH,
+
+	/**
+	 * バイト列として検索し、一致した場合はバイナリファイルとして報告する。
+	 * <p>
+	 * 結果モードに関わらずマッチしたワードとマッチ数は保持しない。
+	 * </p>
+	 */
+	REPORT;
+}
@@ -39,6 +39,18 @@ public class GrepCondition {
 
 	private final List<DirectoryNamePattern> excludeDirectoryNamePatterns;
 
+	/** ファイル名に対応する文字セット */
+	private final List<CharsetHint> charsetHints;
+
+	/** 結果モード */
+	private GrepResultMode resultMode;
+
+	/** 1ファイルあたりの最大マッチ数(0は無制限) */
+	private int maxMatchCount;
+
+	/** バイナリファイルの扱い */
+	private GrepBinaryPolicy binaryPolicy;
+
 	/**
 	 * コンストラクタ
 	 */
@@ -49,6 +61,12 @@ public class GrepCondition {
 
 		excludeFileNamePatterns = new ArrayList<FileNamePattern>();
 		excludeDirectoryNamePatterns = new ArrayList<DirectoryNamePattern>();
+
+		charsetHints = new ArrayList<CharsetHint>();
+
+		resultMode = GrepResultMode.WORDS;
+		maxMatchCount = 0;
+		binaryPolicy = GrepBinaryPolicy.SKIP;
 	}
 
 	public void addContainingText(final ContainingText containingText) {
@@ -136,6 +154,94 @@ public class GrepCondition {
 		return excludeDirectoryNamePatterns;
 	}
 
+	public void addCharsetHint(final CharsetHint charsetHint) {
+		this.charsetHints.add(charsetHint);
+	}
+
+	public void setCharsetHints(final List<CharsetHint> charsetHints) {
+		this.charsetHints.clear();
+		if (null != charsetHints) {
+			this.charsetHints.addAll(charsetHints);
+		}
+	}
+
+	/**
+	 * ファイル名に対応する文字セットを取得する。
+	 * <p>
+	 * ファイル名が一致するファイルは文字セットを判別しない。複数一致する場合、先頭の文字セットを使用する。
+	 * </p>
+	 * 
+	 * @return ファイル名に対応する文字セット
+	 */
+	@XmlElementWrapper(name = "CharsetHints")
+	@XmlElement(name = "CharsetHint")
+	public List<CharsetHint> getCharsetHints() {
+		return charsetHints;
+	}
+
+	/**
+	 * 結果モードを設定する。
+	 * 
+	 * @param mode 結果モード
+	 */
+	public void setResultMode(final GrepResultMode mode) {
+		resultMode = (null != mode) ? mode : GrepResultMode.WORDS;
+	}
+
+	/**
+	 * 結果モードを取得する。
+	 * 
+	 * @return 結果モード
+	 */
+	@XmlElement(name = "ResultMode")
+	public GrepResultMode getResultMode() {
+		return resultMode;
+	}
+
+	/**
+	 * 1ファイルあたりの最大マッチ数を設定する。
+	 * <p>
+	 * 最大マッチ数に達したファイルは、それ以降の検索を行わない。
+	 * </p>
+	 * 
+	 * @param count 最大マッチ数。0の場合、無制限。
+	 */
+	public void setMaxMatchCount(final int count) {
+		if (0 > count) {
+			throw new IllegalArgumentException("maxMatchCount must not be negative.");
+		}
+		maxMatchCount = count;
+	}
+
+	/**
+	 * 1ファイルあたりの最大マッチ数を取得する。
+	 * 
+	 * @return 最大マッチ数。無制限の場合、0を返す。
+	 */
+	@XmlElement(name = "MaxMatchCount")
+	public int getMaxMatchCount() {
+		return maxMatchCount;
+	}
+
+	/**
+	 * バイナリファイルの扱いを設定する。
+	 * 
+	 * @param policy バイナリファイルの扱い
+	 */
+	public void setBinaryPolicy(final GrepBinaryPolicy policy) {
+		binaryPolicy = (null != policy) ? policy : GrepBinaryPolicy.SKIP;
+	}
+
+	/**
+	 * バイナリファイルの扱いを取得する。
+	 * 
+	 * @return バイナリファイルの扱い
+	 */
+	@XmlElement(name = "BinaryPolicy")
+	public GrepBinaryPolicy getBinaryPolicy() {
+		return binaryPolicy;
+	}
+
 	public List<File> getTargetDirectoryFiles() {
 		List<File> files = new ArrayList<File>();
 		for (TargetDirectory directory : targetDirectorys) {
@@ -49,14 +49,55 @@ public class GrepMatchFile {
 	/** */
 	private final List<GrepMatchWord> words;
 
+	/** マッチ数 */
+	private final int matchCount;
+
+	/** バイナリファイルか */
+	private final boolean binary;
+
 	public GrepMatchFile(final File file, final long length, final Date lastModifiedDate, final String charset, final String lineSeparator,
 			final List<GrepMatchWord> words) {
+		this(file, length, lastModifiedDate, charset, lineSeparator, words, words.size());
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param file ファイル
+	 * @param length サイズ
+	 * @param lastModifiedDate 最終更新日時
+	 * @param charset 文字セット
+	 * @param lineSeparator 改行コード
+	 * @param words マッチしたワード一覧
+	 * @param matchCount マッチ数
+	 */
+	public GrepMatchFile(final File file, final long length, final Date lastModifiedDate, final String charset, final String lineSeparator,
+			final List<GrepMatchWord> words, final int matchCount) {
+		this(file, length, lastModifiedDate, charset, lineSeparator, words, matchCount, false);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param file ファイル
+	 * @param length サイズ
+	 * @param lastModifiedDate 最終更新日時
+	 * @param charset 文字セット
+	 * @param lineSeparator 改行コード
+	 * @param words マッチしたワード一覧
+	 * @param matchCount マッチ数
+	 * @param binary バイナリファイルの場合、<code>true</code>
+	 */
+	public GrepMatchFile(final File file, final long length, final Date lastModifiedDate, final String charset, final String lineSeparator,
+			final List<GrepMatchWord> words, final int matchCount, final boolean binary) {
 		this.file = file;
 		this.length = length;
 		this.lastModifiedDate = lastModifiedDate;
 		this.charset = charset;
 		this.lineSeparator = lineSeparator;
 		this.words = words;
+		this.matchCount = matchCount;
+		this.binary = binary;
 	}
 
 	public File getFile() {
@@ -100,6 +141,32 @@ public class GrepMatchFile {
 		return "";
 	}
 
+	/**
+	 * マッチ数を取得する。
+	 * <p>
+	 * {@link GrepResultMode#FILES}の場合、マッチ数は数えないため0を返す。
+	 * </p>
+	 * 
+	 * @return マッチ数
+	 */
+	@XmlElement(name = "MatchCount")
+	public int getMatchCount() {
+		return matchCount;
+	}
+
+	/**
+	 * バイナリファイルか判断する。
+	 * <p>
+	 * {@link GrepBinaryPolicy#REPORT}で一致したバイナリファイルの場合、<code>true</code>を返す。
+	 * </p>
+	 * 
+	 * @return バイナリファイルの場合、<code>true</code>を返す。
+	 */
+	@XmlElement(name = "Binary")
+	public boolean isBinary() {
+		return binary;
+	}
+
 	@XmlElementWrapper(name = "MatchWords")
 	@XmlElement(name = "MatchWord")
 	public List<GrepMatchWord> getWords() {
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.azkfw.grep.util.LineIndex;
+
+/**
+ * このクラスは、1ファイル分のマッチしたワードが共有するファイル内容を保持するクラスです。
+ * <p>
+ * ワードと行文字列はこのファイル内容から必要な時に切り出す。<br/>
+ * 切り出した行文字列は保持し、同じ行にマッチしたワード間で共有する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class GrepMatchText {
+
+	/** ファイル内容 */
+	private final String source;
+	/** 行位置の索引 */
+	private final LineIndex lineIndex;
+	/** 切り出した行文字列(キーは行番号) */
+	private final Map<Integer, String> lines;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param source ファイル内容
+	 * @param lineIndex 行位置の索引
+	 */
+	public GrepMatchText(final String source, final LineIndex lineIndex) {
+		this.source = source;
+		this.lineIndex = lineIndex;
+		this.lines = new HashMap<Integer, String>();
+	}
+
+	/**
+	 * 行位置の索引を取得する。
+	 * 
+	 * @return 行位置の索引
+	 */
+	public LineIndex getLineIndex() {
+		return lineIndex;
+	}
+
+	/**
+	 * 指定範囲の文字列を取得する。
+	 * 
+	 * @param start 開始位置
+	 * @param end 終了位置(この位置の文字は含まない)
+	 * @return 文字列
+	 */
+	public String getString(final int start, final int end) {
+		return source.substring(start, end);
+	}
+
+	/**
+	 * 行文字列を取得する。
+	 * 
+	 * @param lineNo 行番号(1始まり)
+	 * @return 行文字列
+	 */
+	public String getLineString(final int lineNo) {
+		synchronized (lines) {
+			String line = lines.get(lineNo);
+			if (null == line) {
+				line = lineIndex.getLineString(lineNo);
+				lines.put(lineNo, line);
+			}
+			return line;
+		}
+	}
+}
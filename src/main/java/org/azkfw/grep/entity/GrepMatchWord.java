@@ -23,6 +23,9 @@ import javax.xml.bind.annotation.XmlValue;
 
 /**
  * このクラスは、Grepでマッチしたワード情報を保持するエンティティクラスです。
+ * <p>
+ * ファイル内容を参照して生成した場合、ワードと行文字列は生成時には保持せず、最初に必要になった時にファイル内容から切り出して保持する。
+ * </p>
  * 
  * @author Kawakicchi
  */
@@ -44,6 +47,9 @@ public class GrepMatchWord implements DocumentPosition {
 	/** 行文字列 */
 	private String lineString;
 
+	/** ファイル内容(ワードと行文字列を必要な時に切り出す) */
+	private GrepMatchText text;
+
 	/** 開始位置 */
 	private int start;
 
@@ -76,6 +82,27 @@ public class GrepMatchWord implements DocumentPosition {
 		this.virtualEnd = virtualEnd;
 	}
 
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 行情報はファイル内容の行位置の索引から求める。
+	 * </p>
+	 * 
+	 * @param pattern パターンNo
+	 * @param text ファイル内容
+	 * @param start 開始位置
+	 * @param end 終了位置
+	 * @param virtualStart 開始位置(改行コードをLFにしたもの)
+	 * @param virtualEnd 終了位置(改行コードをLFにしたもの)
+	 */
+	public GrepMatchWord(final int pattern, final GrepMatchText text, final int start, final int end, final int virtualStart,
+			final int virtualEnd) {
+		this(pattern, (String) null, start, end, virtualStart, virtualEnd);
+		this.text = text;
+		this.lineNo = text.getLineIndex().getLineNo(start);
+		this.lineStart = text.getLineIndex().getLineStart(lineNo);
+	}
+
 	public void setPattern(final int pattern) {
 		this.pattern = pattern;
 	}
@@ -91,6 +118,9 @@ public class GrepMatchWord implements DocumentPosition {
 
 	@XmlValue
 	public String getWord() {
+		if (null == word && null != text) {
+			word = text.getString(start, end);
+		}
 		return word;
 	}
 
@@ -110,6 +140,9 @@ public class GrepMatchWord implements DocumentPosition {
 	}
 
 	public String getLineString() {
+		if (null == lineString && null != text) {
+			lineString = text.getLineString(lineNo);
+		}
 		return lineString;
 	}
 
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+/**
+ * この列挙型は、Grep結果に含める情報を定義した列挙型です。
+ * 
+ * @author Kawakicchi
+ */
+public enum GrepResultMode {
+
+	/**
+	 * マッチしたワードを行情報付きで全て保持する。
+	 */
+	WORDS,
+
+	/**
+	 * マッチしたファイルのみを保持する。
+	 * <p>
+	 * 全ての検索文字列の最初の一致が見つかった時点でファイルの検索を終了する。
+	 * </p>
+	 */
+	FILES,
+
+	/**
+	 * マッチしたファイルとマッチ数のみを保持する。
+	 * <p>
+	 * マッチしたワードは生成しない。
+	 * </p>
+	 */
+	COUNT;
+}
@@ -57,4 +57,70 @@ public interface GrepStatistics {
 	 * @return
 	 */
 	long getTotalTargetFileLength();
+
+	/**
+	 * 検索を完了したファイル数
+	 * 
+	 * @return
+	 */
+	long getProcessedFileCount();
+
+	/**
+	 * 検索せずにスキップしたバイナリファイル数
+	 * 
+	 * @return
+	 */
+	long getSkippedBinaryFileCount();
+
+	/**
+	 * マッチしたワード数
+	 * 
+	 * @return
+	 */
+	long getMatchWordCount();
+
+	/**
+	 * ファイルから実際に読み込んだバイト数(キャッシュから取得した分は含まない)
+	 * 
+	 * @return
+	 */
+	long getReadByteLength();
+
+	/**
+	 * 文字列にデコードしたバイト数
+	 * 
+	 * @return
+	 */
+	long getDecodeByteLength();
+
+	/**
+	 * 開始からの経過時間(ナノ秒)
+	 * <p>
+	 * 終了後は開始から終了までの時間を返す。
+	 * </p>
+	 * 
+	 * @return
+	 */
+	long getElapsedNanoTime();
+
+	/**
+	 * 1秒あたりの検索ファイル数
+	 * 
+	 * @return
+	 */
+	double getFileRate();
+
+	/**
+	 * 1秒あたりの読み込みバイト数
+	 * 
+	 * @return
+	 */
+	double getByteRate();
+
+	/**
+	 * 1秒あたりのマッチワード数
+	 * 
+	 * @return
+	 */
+	double getMatchRate();
 }
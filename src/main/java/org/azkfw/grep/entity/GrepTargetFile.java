@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * このクラスは、Grep対象ファイルの情報を保持するエンティティクラスです。
+ * <p>
+ * スキャン時に取得したファイル属性を保持し、検索・キャッシュ判定・結果生成で再利用する。
+ * </p>
+ *
+ * @author Kawakicchi
+ */
+public class GrepTargetFile {
+
+	/** ファイル */
+	private final File file;
+	/** サイズ */
+	private final long length;
+	/** 最終更新日時 */
+	private final long lastModified;
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * ファイル属性をファイルシステムから取得する。
+	 * </p>
+	 *
+	 * @param file ファイル
+	 */
+	public GrepTargetFile(final File file) {
+		this(file, file.length(), file.lastModified());
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param path パス
+	 * @param attributes ファイル属性
+	 */
+	public GrepTargetFile(final Path path, final BasicFileAttributes attributes) {
+		this(path.toFile(), attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param file ファイル
+	 * @param length サイズ
+	 * @param lastModified 最終更新日時
+	 */
+	public GrepTargetFile(final File file, final long length, final long lastModified) {
+		this.file = file;
+		this.length = length;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * ファイルを取得する。
+	 *
+	 * @return ファイル
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * ファイルサイズを取得する。
+	 *
+	 * @return ファイルサイズ
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * 最終更新日時を取得する。
+	 *
+	 * @return 最終更新日時
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+}
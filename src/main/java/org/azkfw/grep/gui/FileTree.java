@@ -186,7 +186,7 @@ public class FileTree extends JTree {
 		}
 				
 		public String toString() {
-			String s = String.format("%s (%d matches)", file.getFile().getName(), file.getWords().size());
+			String s = String.format("%s (%d matches)", file.getFile().getName(), file.getMatchCount());
 			return s;
 		}
 	}
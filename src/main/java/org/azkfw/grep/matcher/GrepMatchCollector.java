@@ -0,0 +1,35 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+/**
+ * このインターフェースは、検索パターンの一致を受け取るインターフェースです。
+ * 
+ * @author Kawakicchi
+ */
+public interface GrepMatchCollector {
+
+	/**
+	 * 一致した時に呼び出される
+	 * 
+	 * @param index パターンの番号(0始まり)
+	 * @param start 開始位置
+	 * @param end 終了位置(この位置の文字は含まない)
+	 */
+	void collect(int index, int start, int end);
+}
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+/**
+ * このインターフェースは、文字シーケンスからパターンを検索するマッチャーを定義したインターフェースです。
+ * <p>
+ * {@link java.util.regex.Matcher#find()}と同様に、前回の一致の終了位置から重複しない一致を順に検索する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public interface GrepMatcher {
+
+	/**
+	 * 次の一致を検索する。
+	 * 
+	 * @return 一致した場合、<code>true</code>を返す。
+	 */
+	boolean find();
+
+	/**
+	 * 直前の一致の開始位置を取得する。
+	 * 
+	 * @return 開始位置
+	 */
+	int start();
+
+	/**
+	 * 直前の一致の終了位置を取得する。
+	 * 
+	 * @return 終了位置(この位置の文字は含まない)
+	 */
+	int end();
+}
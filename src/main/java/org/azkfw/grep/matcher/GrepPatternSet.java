@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * このクラスは、全てを含む文字列を検索する複数の検索パターンです。
+ * <p>
+ * 大文字・小文字を区別しない固定文字列が2つ以上ある場合、{@link MultiLiteralPattern}で1回の走査で検索する。<br/>
+ * その他のパターンは固定文字列、正規表現の順に最初の一致の有無を確認し、一致しないパターンがあればその時点で検索を終了する。<br/>
+ * 全てのパターンが一致した場合のみ、パターンの番号順に各パターンの一致を通知する。<br/>
+ * 生成後は変更されないため、複数のサーチャーで共有できる。
+ * </p>
+ * <p>
+ * 正規表現は1つの選択(alternation)にまとめない。
+ * まとめるとパターン間で重なる一致が失われ、パターン毎に検索した場合と結果が変わるためである。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class GrepPatternSet {
+
+	/** 検索パターン一覧(<code>null</code>を含む) */
+	private final GrepPattern[] patterns;
+
+	/** 複数固定文字列パターン */
+	private final MultiLiteralPattern multiLiteral;
+	/** 複数固定文字列パターンの番号から検索パターンの番号への変換表 */
+	private final int[] multiLiteralIndexes;
+	/** 個別に検索するパターンの番号(固定文字列、正規表現の順) */
+	private final int[] singleIndexes;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param patterns 検索パターン一覧。<code>null</code>の要素は検索しない。
+	 */
+	public GrepPatternSet(final List<GrepPattern> patterns) {
+		this.patterns = patterns.toArray(new GrepPattern[patterns.size()]);
+
+		final List<Integer> literals = new ArrayList<Integer>();
+		for (int i = 0; i < this.patterns.length; i++) {
+			final GrepPattern pattern = this.patterns[i];
+			if (pattern instanceof LiteralGrepPattern && ((LiteralGrepPattern) pattern).isIgnoreCase()) {
+				literals.add(i);
+			}
+		}
+
+		final List<Integer> singles = new ArrayList<Integer>();
+		if (2 <= literals.size()) {
+			final List<String> strings = new ArrayList<String>();
+			multiLiteralIndexes = new int[literals.size()];
+			for (int i = 0; i < literals.size(); i++) {
+				multiLiteralIndexes[i] = literals.get(i);
+				strings.add(((LiteralGrepPattern) this.patterns[literals.get(i)]).getLiteral());
+			}
+			multiLiteral = new MultiLiteralPattern(strings, true);
+		} else {
+			multiLiteralIndexes = new int[0];
+			multiLiteral = null;
+			singles.addAll(literals);
+		}
+		for (int i = 0; i < this.patterns.length; i++) {
+			final GrepPattern pattern = this.patterns[i];
+			if (null != pattern && !literals.contains(i) && pattern.isLiteral()) {
+				singles.add(i);
+			}
+		}
+		for (int i = 0; i < this.patterns.length; i++) {
+			final GrepPattern pattern = this.patterns[i];
+			if (null != pattern && !pattern.isLiteral()) {
+				singles.add(i);
+			}
+		}
+		singleIndexes = new int[singles.size()];
+		for (int i = 0; i < singles.size(); i++) {
+			singleIndexes[i] = singles.get(i);
+		}
+	}
+
+	/**
+	 * 全てのパターンを含むか検索する。
+	 * 
+	 * @param text 文字シーケンス
+	 * @param collector 一致を受け取るコレクター。全てのパターンが一致した場合のみ呼び出される。
+	 * @return 全てのパターンが一致した場合、<code>true</code>を返す。
+	 */
+	public boolean find(final CharSequence text, final GrepMatchCollector collector) {
+		return find(text, collector, 0);
+	}
+
+	/**
+	 * 全てのパターンを含むか検索する。
+	 * <p>
+	 * 各パターンは最大一致数に達した時点で検索を終了する。<br/>
+	 * 位置順で先頭からn件の一致は、各パターンの先頭からn件の一致に必ず含まれる。
+	 * </p>
+	 * 
+	 * @param text 文字シーケンス
+	 * @param collector 一致を受け取るコレクター。全てのパターンが一致した場合のみ呼び出される。
+	 * @param limit パターン毎の最大一致数。0の場合、無制限。
+	 * @return 全てのパターンが一致した場合、<code>true</code>を返す。
+	 */
+	public boolean find(final CharSequence text, final GrepMatchCollector collector, final int limit) {
+		final Matches[] matches = new Matches[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			matches[i] = new Matches();
+		}
+
+		if (null != multiLiteral) {
+			multiLiteral.find(text, (index, start, end) -> matches[multiLiteralIndexes[index]].add(start, end), limit);
+			for (final int index : multiLiteralIndexes) {
+				if (0 == matches[index].size) {
+					return false;
+				}
+			}
+		}
+
+		// 最初の一致の有無を先に確認する
+		final GrepMatcher[] matchers = new GrepMatcher[patterns.length];
+		for (final int index : singleIndexes) {
+			final GrepMatcher matcher = patterns[index].matcher(text);
+			if (!matcher.find()) {
+				return false;
+			}
+			matches[index].add(matcher.start(), matcher.end());
+			matchers[index] = matcher;
+		}
+		for (final int index : singleIndexes) {
+			final GrepMatcher matcher = matchers[index];
+			while ((0 == limit || matches[index].size < limit) && matcher.find()) {
+				matches[index].add(matcher.start(), matcher.end());
+			}
+		}
+
+		for (int i = 0; i < matches.length; i++) {
+			final Matches m = matches[i];
+			for (int j = 0; j < m.size; j++) {
+				collector.collect(i, m.offsets[j * 2], m.offsets[j * 2 + 1]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * パターン数を取得する。
+	 * 
+	 * @return パターン数(<code>null</code>の要素を含む)
+	 */
+	public int size() {
+		return patterns.length;
+	}
+
+	/**
+	 * 検索するパターンか判断する。
+	 * 
+	 * @param index パターンの番号(0始まり)
+	 * @return 検索するパターンの場合、<code>true</code>を返す。<code>null</code>の要素の場合、<code>false</code>を返す。
+	 */
+	public boolean isRequired(final int index) {
+		return null != patterns[index];
+	}
+
+	/**
+	 * パターン毎に全ての一致を検索する。
+	 * <p>
+	 * {@link #find(CharSequence, GrepMatchCollector)}と異なり、一致しないパターンがあっても他のパターンの一致を通知する。<br/>
+	 * 一致はパターンの番号順ではなく検出順に通知する。ファイルを分割して検索する場合に使用する。
+	 * </p>
+	 * 
+	 * @param text 文字シーケンス
+	 * @param collector 一致を受け取るコレクター
+	 * @param skip 検索しないパターン(<code>true</code>の要素)
+	 */
+	public void findEach(final CharSequence text, final GrepMatchCollector collector, final boolean[] skip) {
+		if (null != multiLiteral) {
+			boolean all = true;
+			for (final int index : multiLiteralIndexes) {
+				all &= skip[index];
+			}
+			if (!all) {
+				multiLiteral.find(text, (index, start, end) -> {
+					final int patternIndex = multiLiteralIndexes[index];
+					if (!skip[patternIndex]) {
+						collector.collect(patternIndex, start, end);
+					}
+				}, 0);
+			}
+		}
+		for (final int index : singleIndexes) {
+			if (!skip[index]) {
+				final GrepMatcher matcher = patterns[index].matcher(text);
+				while (matcher.find()) {
+					collector.collect(index, matcher.start(), matcher.end());
+				}
+			}
+		}
+	}
+
+	/**
+	 * このクラスは、1つのパターンの一致位置を保持するクラスです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private static class Matches {
+
+		private int[] offsets = new int[8];
+		private int size;
+
+		private void add(final int start, final int end) {
+			if (offsets.length < (size + 1) * 2) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[size * 2] = start;
+			offsets[size * 2 + 1] = end;
+			size++;
+		}
+	}
+}
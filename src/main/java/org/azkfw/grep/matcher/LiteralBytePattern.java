@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * このクラスは、固定文字列を符号化したバイト列による検索パターンです。
+ * <p>
+ * デコード前のファイル内容から一致の有無を判定するために使用する。<br/>
+ * 大文字・小文字を区別しない場合、US-ASCIIの英字のバイトのみを同一視する。<br/>
+ * マルチバイト文字の一部に一致する場合があるため、一致した場合はデコードした文字列で改めて検索すること。<br/>
+ * 一致しない場合、デコードした文字列にも一致しないことが保証される。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class LiteralBytePattern {
+
+	/** US-ASCIIの文字を1バイトでそのまま符号化する文字セット名 */
+	private static final Set<String> ASCII_COMPATIBLE_CHARSETS = new HashSet<String>(Arrays.asList("US-ASCII", "UTF-8", "Shift_JIS",
+			"windows-31j", "EUC-JP", "EUC-KR", "GB2312", "GBK", "GB18030", "Big5", "KOI8-R", "TIS-620"));
+
+	/** シフト表のサイズ */
+	private static final int SHIFT_TABLE_SIZE = 256;
+
+	/** 検索バイト列(大文字・小文字を区別しない場合は小文字化済み) */
+	private final byte[] pattern;
+	/** 大文字・小文字を区別しないか */
+	private final boolean ignoreCase;
+	/** シフト表 */
+	private final int[] shift;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param bytes 検索バイト列(1バイト以上)
+	 * @param ignoreCase 大文字・小文字を区別しない場合、<code>true</code>
+	 */
+	public LiteralBytePattern(final byte[] bytes, final boolean ignoreCase) {
+		if (null == bytes || 0 == bytes.length) {
+			throw new IllegalArgumentException("bytes is empty.");
+		}
+		this.ignoreCase = ignoreCase;
+		this.pattern = new byte[bytes.length];
+		for (int i = 0; i < pattern.length; i++) {
+			pattern[i] = fold(bytes[i]);
+		}
+
+		final int length = pattern.length;
+		shift = new int[SHIFT_TABLE_SIZE];
+		Arrays.fill(shift, length);
+		for (int i = 0; i < length - 1; i++) {
+			shift[pattern[i] & 0xFF] = length - 1 - i;
+		}
+	}
+
+	/**
+	 * 文字セットがUS-ASCIIの文字を1バイトでそのまま符号化するか判断する。
+	 * <p>
+	 * マルチバイト文字の2バイト目以降がUS-ASCIIの範囲と重なる文字セットも含む(一致判定が過剰になるだけで、見逃しは生じない)。<br/>
+	 * UTF-16やISO-2022-JPなど、US-ASCIIの文字を別のバイト列で表す文字セットは含まない。
+	 * </p>
+	 * 
+	 * @param charset 文字セット
+	 * @return US-ASCII互換の場合、<code>true</code>を返す。
+	 */
+	public static boolean isAsciiCompatible(final Charset charset) {
+		final String name = charset.name();
+		return ASCII_COMPATIBLE_CHARSETS.contains(name) || name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+	}
+
+	/**
+	 * 文字セットがUTF-8か判断する。
+	 * 
+	 * @param charset 文字セット
+	 * @return UTF-8の場合、<code>true</code>を返す。
+	 */
+	public static boolean isUtf8(final Charset charset) {
+		return StandardCharsets.UTF_8.equals(charset);
+	}
+
+	/**
+	 * 指定範囲で最初に一致する位置を検索する。
+	 * 
+	 * @param data バイト列
+	 * @param fromIndex 検索開始位置
+	 * @param toIndex 検索終了位置(この位置は含まない)
+	 * @return 一致した位置。一致しない場合、<code>-1</code>を返す。
+	 */
+	public int indexOf(final byte[] data, final int fromIndex, final int toIndex) {
+		final int last = pattern.length - 1;
+		final byte lastByte = pattern[last];
+		final int limit = toIndex - pattern.length;
+
+		int index = Math.max(0, fromIndex);
+		while (index <= limit) {
+			final byte b = fold(data[index + last]);
+			if (b == lastByte) {
+				int j = last - 1;
+				while (0 <= j && fold(data[index + j]) == pattern[j]) {
+					j--;
+				}
+				if (0 > j) {
+					return index;
+				}
+			}
+			index += shift[b & 0xFF];
+		}
+		return -1;
+	}
+
+	/**
+	 * 指定範囲で最初に一致する位置を検索する。
+	 * <p>
+	 * バッファの位置は変更しない。メモリマップしたバッファをヒープにコピーせずに検索できる。
+	 * </p>
+	 * 
+	 * @param data バッファ
+	 * @param fromIndex 検索開始位置(絶対位置)
+	 * @param toIndex 検索終了位置(絶対位置、この位置は含まない)
+	 * @return 一致した位置。一致しない場合、<code>-1</code>を返す。
+	 */
+	public int indexOf(final ByteBuffer data, final int fromIndex, final int toIndex) {
+		if (data.hasArray()) {
+			final int offset = data.arrayOffset();
+			final int index = indexOf(data.array(), offset + fromIndex, offset + toIndex);
+			return (0 > index) ? index : index - offset;
+		}
+
+		final int last = pattern.length - 1;
+		final byte lastByte = pattern[last];
+		final int limit = toIndex - pattern.length;
+
+		int index = Math.max(0, fromIndex);
+		while (index <= limit) {
+			final byte b = fold(data.get(index + last));
+			if (b == lastByte) {
+				int j = last - 1;
+				while (0 <= j && fold(data.get(index + j)) == pattern[j]) {
+					j--;
+				}
+				if (0 > j) {
+					return index;
+				}
+			}
+			index += shift[b & 0xFF];
+		}
+		return -1;
+	}
+
+	private byte fold(final byte b) {
+		if (ignoreCase && 'A' <= b && b <= 'Z') {
+			return (byte) (b + ('a' - 'A'));
+		}
+		return b;
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.nio.charset.Charset;
+
+/**
+ * このクラスは、固定文字列による検索パターンです。
+ * <p>
+ * Boyer-Moore-Horspool法で検索する。<br/>
+ * シフト表は文字の下位8bitで引く256要素の表とし、同じ要素に当たる文字は小さい方のシフト量を採る。<br/>
+ * 大文字・小文字を区別しない場合、{@link java.util.regex.Pattern#CASE_INSENSITIVE}と同じくUS-ASCIIの英字のみを同一視する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class LiteralGrepPattern implements GrepPattern {
+
+	/** シフト表のサイズ */
+	private static final int SHIFT_TABLE_SIZE = 256;
+
+	/** 検索文字列 */
+	private final String literal;
+	/** 検索文字列(大文字・小文字を区別しない場合は小文字化済み) */
+	private final char[] pattern;
+	/** 大文字・小文字を区別しないか */
+	private final boolean ignoreCase;
+	/** シフト表 */
+	private final int[] shift;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param literal 検索文字列(1文字以上)
+	 * @param ignoreCase 大文字・小文字を区別しない場合、<code>true</code>
+	 */
+	public LiteralGrepPattern(final String literal, final boolean ignoreCase) {
+		if (null == literal || 0 == literal.length()) {
+			throw new IllegalArgumentException("literal is empty.");
+		}
+		this.literal = literal;
+		this.ignoreCase = ignoreCase;
+		this.pattern = new char[literal.length()];
+		for (int i = 0; i < pattern.length; i++) {
+			pattern[i] = fold(literal.charAt(i));
+		}
+
+		final int length = pattern.length;
+		shift = new int[SHIFT_TABLE_SIZE];
+		for (int i = 0; i < SHIFT_TABLE_SIZE; i++) {
+			shift[i] = length;
+		}
+		for (int i = 0; i < length - 1; i++) {
+			shift[pattern[i] & 0xFF] = length - 1 - i;
+		}
+	}
+
+	/**
+	 * 検索文字列を取得する。
+	 * 
+	 * @return 検索文字列
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * 大文字・小文字を区別しないか判断する。
+	 * 
+	 * @return 区別しない場合、<code>true</code>を返す。
+	 */
+	public boolean isIgnoreCase() {
+		return ignoreCase;
+	}
+
+	/**
+	 * 検索文字列の長さを取得する。
+	 * 
+	 * @return 文字数
+	 */
+	public int length() {
+		return pattern.length;
+	}
+
+	/**
+	 * 指定された文字セットで符号化したバイト列の検索パターンを生成する。
+	 * <p>
+	 * UTF-8は全ての文字列、その他のUS-ASCII互換の文字セットはUS-ASCIIのみの文字列を対象とする。
+	 * </p>
+	 * 
+	 * @param charset 文字セット
+	 * @return バイト列の検索パターン。バイト列で判定できない場合、<code>null</code>を返す。
+	 */
+	public LiteralBytePattern toBytePattern(final Charset charset) {
+		if (LiteralBytePattern.isUtf8(charset)) {
+			for (final char c : pattern) {
+				// 不正なバイト列のデコード結果には一致させられない
+				if ('\uFFFD' == c) {
+					return null;
+				}
+			}
+		} else {
+			if (!LiteralBytePattern.isAsciiCompatible(charset)) {
+				return null;
+			}
+			for (final char c : pattern) {
+				if (0x80 <= c) {
+					return null;
+				}
+			}
+		}
+		return new LiteralBytePattern(new String(pattern).getBytes(charset), ignoreCase);
+	}
+
+	@Override
+	public GrepMatcher matcher(final CharSequence text) {
+		return new LiteralGrepMatcher(text);
+	}
+
+	@Override
+	public boolean isLiteral() {
+		return true;
+	}
+
+	/**
+	 * 指定位置以降で最初に一致する位置を検索する。
+	 * 
+	 * @param text 文字シーケンス
+	 * @param fromIndex 検索開始位置
+	 * @return 一致した位置。一致しない場合、<code>-1</code>を返す。
+	 */
+	public int indexOf(final CharSequence text, final int fromIndex) {
+		final int last = pattern.length - 1;
+		final char lastChar = pattern[last];
+		final int limit = text.length() - pattern.length;
+
+		int index = Math.max(0, fromIndex);
+		while (index <= limit) {
+			final char c = fold(text.charAt(index + last));
+			if (c == lastChar) {
+				int j = last - 1;
+				while (0 <= j && fold(text.charAt(index + j)) == pattern[j]) {
+					j--;
+				}
+				if (0 > j) {
+					return index;
+				}
+			}
+			index += shift[c & 0xFF];
+		}
+		return -1;
+	}
+
+	private char fold(final char c) {
+		if (ignoreCase && 'A' <= c && c <= 'Z') {
+			return (char) (c + ('a' - 'A'));
+		}
+		return c;
+	}
+
+	/**
+	 * このクラスは、固定文字列のマッチャーです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private class LiteralGrepMatcher implements GrepMatcher {
+
+		private final CharSequence text;
+
+		private int position;
+		private int start;
+
+		private LiteralGrepMatcher(final CharSequence text) {
+			this.text = text;
+			this.position = 0;
+			this.start = -1;
+		}
+
+		@Override
+		public boolean find() {
+			final int index = indexOf(text, position);
+			if (0 > index) {
+				start = -1;
+				position = text.length();
+				return false;
+			}
+			start = index;
+			position = index + pattern.length;
+			return true;
+		}
+
+		@Override
+		public int start() {
+			if (0 > start) {
+				throw new IllegalStateException("No match available");
+			}
+			return start;
+		}
+
+		@Override
+		public int end() {
+			if (0 > start) {
+				throw new IllegalStateException("No match available");
+			}
+			return start + pattern.length;
+		}
+	}
+}
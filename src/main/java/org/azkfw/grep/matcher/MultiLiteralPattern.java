@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * このクラスは、複数の固定文字列を1回の走査で検索するパターンです。
+ * <p>
+ * Aho-Corasick法で検索する。US-ASCIIの文字は状態遷移表を、それ以外の文字はトライと失敗遷移を使用する。<br/>
+ * 一致は固定文字列毎に、{@link LiteralGrepPattern}で単独に検索した場合と同じく重複しない最左の一致のみを通知する。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+final class MultiLiteralPattern {
+
+	/** 状態遷移表の文字数 */
+	private static final int ASCII_SIZE = 128;
+
+	/** 大文字・小文字を区別しないか */
+	private final boolean ignoreCase;
+	/** 固定文字列毎の文字数 */
+	private final int[] lengths;
+
+	/** US-ASCIIの状態遷移表 */
+	private final int[][] asciiNext;
+	/** US-ASCII以外の文字のトライ */
+	private final List<Map<Character, Integer>> children;
+	/** 失敗遷移 */
+	private final int[] fail;
+	/** 状態毎に一致する固定文字列 */
+	private final int[][] outputs;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param literals 固定文字列一覧(各1文字以上)
+	 * @param ignoreCase 大文字・小文字を区別しない場合、<code>true</code>
+	 */
+	MultiLiteralPattern(final List<String> literals, final boolean ignoreCase) {
+		this.ignoreCase = ignoreCase;
+		this.lengths = new int[literals.size()];
+
+		// トライ
+		children = new ArrayList<Map<Character, Integer>>();
+		final List<int[]> own = new ArrayList<int[]>();
+		children.add(new HashMap<Character, Integer>());
+		own.add(new int[0]);
+		for (int i = 0; i < literals.size(); i++) {
+			final String literal = literals.get(i);
+			lengths[i] = literal.length();
+
+			int state = 0;
+			for (int j = 0; j < literal.length(); j++) {
+				final Character c = fold(literal.charAt(j));
+				Integer child = children.get(state).get(c);
+				if (null == child) {
+					child = children.size();
+					children.get(state).put(c, child);
+					children.add(new HashMap<Character, Integer>());
+					own.add(new int[0]);
+				}
+				state = child;
+			}
+			final int[] o = own.get(state);
+			final int[] n = Arrays.copyOf(o, o.length + 1);
+			n[o.length] = i;
+			own.set(state, n);
+		}
+
+		// 失敗遷移(幅優先)
+		final int size = children.size();
+		fail = new int[size];
+		outputs = new int[size][];
+		asciiNext = new int[size][ASCII_SIZE];
+		outputs[0] = own.get(0);
+
+		final int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		while (head < tail) {
+			final int state = queue[head++];
+			for (final Map.Entry<Character, Integer> entry : children.get(state).entrySet()) {
+				final char c = entry.getKey();
+				final int child = entry.getValue();
+				fail[child] = (0 == state) ? 0 : transit(fail[state], c);
+
+				final int[] o = own.get(child);
+				final int[] f = outputs[fail[child]];
+				final int[] merged = Arrays.copyOf(o, o.length + f.length);
+				System.arraycopy(f, 0, merged, o.length, f.length);
+				outputs[child] = merged;
+
+				queue[tail++] = child;
+			}
+			for (char c = 0; c < ASCII_SIZE; c++) {
+				final Integer child = children.get(state).get(c);
+				if (null != child) {
+					asciiNext[state][c] = child;
+				} else {
+					asciiNext[state][c] = (0 == state) ? 0 : asciiNext[fail[state]][c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * 文字列を検索し、一致を通知する。
+	 * 
+	 * @param text 文字シーケンス
+	 * @param collector 一致を受け取るコレクター(番号は固定文字列一覧の番号)
+	 * @param limit 固定文字列毎の最大一致数。0の場合、無制限。全ての固定文字列が最大一致数に達した時点で検索を終了する。
+	 */
+	void find(final CharSequence text, final GrepMatchCollector collector, final int limit) {
+		// 固定文字列毎の前回の一致の終了位置
+		final int[] next = new int[lengths.length];
+		// 固定文字列毎の一致数
+		final int[] counts = new int[lengths.length];
+		// 最大一致数に達していない固定文字列数
+		int remaining = lengths.length;
+
+		int state = 0;
+		final int length = text.length();
+		for (int i = 0; i < length && 0 < remaining; i++) {
+			final char c = fold(text.charAt(i));
+			state = (c < ASCII_SIZE) ? asciiNext[state][c] : transit(state, c);
+
+			final int[] output = outputs[state];
+			for (int j = 0; j < output.length; j++) {
+				final int index = output[j];
+				final int start = i + 1 - lengths[index];
+				if (start >= next[index] && (0 == limit || counts[index] < limit)) {
+					next[index] = i + 1;
+					collector.collect(index, start, i + 1);
+					if (++counts[index] == limit) {
+						remaining--;
+					}
+				}
+			}
+		}
+	}
+
+	private int transit(final int state, final char c) {
+		int s = state;
+		while (true) {
+			final Integer child = children.get(s).get(c);
+			if (null != child) {
+				return child;
+			}
+			if (0 == s) {
+				return 0;
+			}
+			s = fail[s];
+		}
+	}
+
+	private char fold(final char c) {
+		if (ignoreCase && 'A' <= c && c <= 'Z') {
+			return (char) (c + ('a' - 'A'));
+		}
+		return c;
+	}
+}
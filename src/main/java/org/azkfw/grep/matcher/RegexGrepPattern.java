@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * このクラスは、正規表現による検索パターンです。
+ * 
+ * @author Kawakicchi
+ */
+public final class RegexGrepPattern implements GrepPattern {
+
+	/** 正規表現 */
+	private final Pattern pattern;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param pattern 正規表現
+	 */
+	public RegexGrepPattern(final Pattern pattern) {
+		this.pattern = pattern;
+	}
+
+	/**
+	 * 正規表現を取得する。
+	 * 
+	 * @return 正規表現
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public GrepMatcher matcher(final CharSequence text) {
+		final Matcher matcher = pattern.matcher(text);
+		return new GrepMatcher() {
+			@Override
+			public boolean find() {
+				return matcher.find();
+			}
+
+			@Override
+			public int start() {
+				return matcher.start();
+			}
+
+			@Override
+			public int end() {
+				return matcher.end();
+			}
+		};
+	}
+
+	@Override
+	public boolean isLiteral() {
+		return false;
+	}
+}
@@ -18,16 +18,28 @@
 package org.azkfw.grep.scanner;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.List;
 
 import org.azkfw.grep.Grep;
 import org.azkfw.grep.entity.DirectoryNamePattern;
 import org.azkfw.grep.entity.FileNamePattern;
 import org.azkfw.grep.entity.GrepCondition;
+import org.azkfw.grep.entity.GrepTargetFile;
 import org.azkfw.grep.util.GrepUtility;
 
 /**
  * このクラスは、Grep対象のファイルをスキャンするクラスです。
+ * <p>
+ * {@link Files#walkFileTree}で走査し、走査時に取得したファイル属性をGrep対象ファイルに引き継ぐ。
+ * </p>
  * 
  * @author Kawakicchi
  */
@@ -62,27 +74,48 @@ public class GrepScanner implements Runnable {
 			event.reset();
 			listener.grepScannerStart(event);
 
-			final List<File> files = condition.getTargetDirectoryFiles();
-			for (final File file : files) {
-				if (file.isFile()) {
-					doFile(file);
-				} else if (file.isDirectory()) {
-					doDirectory(file);
-				}
-			}
+			doScan(condition.getTargetDirectoryFiles());
 		} finally {
 			listener.grepScannerEnd(event);
 		}
 	}
 
+	/**
+	 * 対象ディレクトリをスキャンする。
+	 * 
+	 * @param files 対象ディレクトリ一覧
+	 */
+	protected void doScan(final List<File> files) {
+		final ScanFileVisitor visitor = new ScanFileVisitor();
+		for (final File file : files) {
+			if (isStop()) {
+				break;
+			}
+			try {
+				Files.walkFileTree(file.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+			} catch (IOException ex) {
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 停止要求有無を判断する。
+	 * 
+	 * @return 停止要求がある場合、<code>true</code>を返す。
+	 */
+	protected final boolean isStop() {
+		return event.isStop();
+	}
+
 	/**
 	 * 
 	 * @param file
 	 */
-	private void doFile(final File file) {
-		listener.grepScannerFindFile(file, event);
+	protected final void doFile(final GrepTargetFile file) {
+		listener.grepScannerFindFile(file.getFile(), event);
 
-		final String name = file.getName();
+		final String name = file.getFile().getName();
 
 		// Check exclude file
 		final List<FileNamePattern> excludes = condition.getExcludeFileNamePatterns();
@@ -107,10 +140,12 @@ public class GrepScanner implements Runnable {
 	}
 
 	/**
+	 * ディレクトリが走査対象か判断する。
 	 * 
-	 * @param directory
+	 * @param directory ディレクトリ
+	 * @return 走査対象の場合、<code>true</code>を返す。除外ディレクトリの場合、<code>false</code>を返す。
 	 */
-	private void doDirectory(final File directory) {
+	protected final boolean doDirectory(final File directory) {
 		listener.grepScannerFindDirectory(directory, event);
 
 		final String name = directory.getName();
@@ -119,25 +154,51 @@ public class GrepScanner implements Runnable {
 		final List<DirectoryNamePattern> excludes = condition.getExcludeDirectoryNamePatterns();
 		for (DirectoryNamePattern exclude : excludes) {
 			if (exclude.getPattern().matcher(name).matches()) {
-				return;
+				return false;
 			}
 		}
 
 		listener.grepScannerTargetDirectory(directory, event);
 
-		final File[] files = directory.listFiles();
-		for (final File file : files) {
-			if (file.isFile()) {
-				doFile(file);
-			} else if (file.isDirectory()) {
-				doDirectory(file);
+		return true;
+	}
+
+	/**
+	 * このクラスは、ファイルツリーを走査するビジタークラスです。
+	 * 
+	 * @author Kawakicchi
+	 */
+	private class ScanFileVisitor extends SimpleFileVisitor<Path> {
+
+		@Override
+		public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+			if (isStop()) {
+				return FileVisitResult.TERMINATE;
 			}
+			return doDirectory(dir.toFile()) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+			if (isStop()) {
+				return FileVisitResult.TERMINATE;
+			}
+			if (attrs.isRegularFile()) {
+				doFile(new GrepTargetFile(file, attrs));
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(final Path file, final IOException ex) {
+			// 参照できないファイル、循環するシンボリックリンクは無視する
+			return FileVisitResult.CONTINUE;
 		}
 	}
 
 	private class MyGrepScannerEvent implements GrepScannerEvent {
 
-		private boolean stop;
+		private volatile boolean stop;
 
 		private MyGrepScannerEvent(final GrepScanner scanner) {
 			reset();
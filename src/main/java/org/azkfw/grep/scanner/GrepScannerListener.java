@@ -19,6 +19,8 @@ package org.azkfw.grep.scanner;
 
 import java.io.File;
 
+import org.azkfw.grep.entity.GrepTargetFile;
+
 /**
  * このインターフェースは、スキャナーのイベントを定義したリスナーインターフェースです。
  * 
@@ -62,7 +64,7 @@ public interface GrepScannerListener {
 	 * @param file ファイル
 	 * @param event イベント情報
 	 */
-	void grepScannerTargetFile(File file, GrepScannerEvent event);
+	void grepScannerTargetFile(GrepTargetFile file, GrepScannerEvent event);
 
 	/**
 	 * 条件一致ディレクトリ検出時に呼び出されるイベント
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+import org.azkfw.grep.Grep;
+import org.azkfw.grep.entity.GrepCondition;
+import org.azkfw.grep.entity.GrepTargetFile;
+
+/**
+ * このクラスは、Grep対象のファイルを並列にスキャンするクラスです。
+ * <p>
+ * ディレクトリ単位のタスクを{@link ForkJoinPool}に投入し、ワークスティーリングで走査する。<br/>
+ * タスクはjoinせずに完了数で待ち合わせるため、ディレクトリ階層が深くてもスタックを消費しない。<br/>
+ * ファイル属性はエントリ毎に1回だけ取得し、Grep対象ファイルに引き継ぐ。<br/>
+ * リスナーは複数のスレッドから同時に呼び出される。
+ * </p>
+ *
+ * @author Kawakicchi
+ */
+public class ParallelGrepScanner extends GrepScanner {
+
+	/** Fork/Join pool */
+	private final ForkJoinPool pool;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param parent Grep
+	 * @param condition Grep condition
+	 * @param listener Listener
+	 * @param pool Fork/Join pool
+	 */
+	public ParallelGrepScanner(final Grep parent, final GrepCondition condition, final GrepScannerListener listener, final ForkJoinPool pool) {
+		super(parent, condition, listener);
+		this.pool = pool;
+	}
+
+	@Override
+	protected void doScan(final List<File> files) {
+		for (final File file : files) {
+			if (isStop()) {
+				break;
+			}
+			final Path path = file.toPath();
+			final BasicFileAttributes attrs = readAttributes(path);
+			if (null == attrs) {
+				continue;
+			}
+			if (attrs.isRegularFile()) {
+				doFile(new GrepTargetFile(path, attrs));
+			} else if (attrs.isDirectory()) {
+				pool.invoke(new DirectoryTask(null, path, attrs.fileKey()));
+			}
+		}
+	}
+
+	/**
+	 * ファイル属性を取得する。
+	 * <p>
+	 * シンボリックリンクはリンク先の属性を取得する。
+	 * </p>
+	 *
+	 * @param path パス
+	 * @return ファイル属性。取得できない場合、<code>null</code>を返す。
+	 */
+	private static BasicFileAttributes readAttributes(final Path path) {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * このクラスは、1ディレクトリ分のスキャンを行うタスクです。
+	 *
+	 * @author Kawakicchi
+	 */
+	private class DirectoryTask extends CountedCompleter<Void> {
+
+		/** serialVersionUID */
+		private static final long serialVersionUID = 2478125329372096153L;
+
+		/** ディレクトリ */
+		private final Path directory;
+		/** ディレクトリのファイルキー(循環検出用) */
+		private final Object fileKey;
+
+		private DirectoryTask(final DirectoryTask parent, final Path directory, final Object fileKey) {
+			super(parent);
+			this.directory = directory;
+			this.fileKey = fileKey;
+		}
+
+		@Override
+		public void compute() {
+			if (!isStop() && doDirectory(directory.toFile())) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+					for (final Path path : stream) {
+						if (isStop()) {
+							break;
+						}
+						final BasicFileAttributes attrs = readAttributes(path);
+						if (null == attrs) {
+							continue;
+						}
+						if (attrs.isRegularFile()) {
+							doFile(new GrepTargetFile(path, attrs));
+						} else if (attrs.isDirectory() && !isLoop(attrs.fileKey())) {
+							addToPendingCount(1);
+							new DirectoryTask(this, path, attrs.fileKey()).fork();
+						}
+					}
+				} catch (IOException ex) {
+					// 参照できないディレクトリは無視する
+				}
+			}
+			tryComplete();
+		}
+
+		/**
+		 * シンボリックリンクによるディレクトリの循環を判断する。
+		 *
+		 * @param key ファイルキー
+		 * @return 祖先ディレクトリと同一の場合、<code>true</code>を返す。
+		 */
+		private boolean isLoop(final Object key) {
+			if (null == key) {
+				return false;
+			}
+			for (DirectoryTask task = this; null != task; task = (DirectoryTask) task.getCompleter()) {
+				if (key.equals(task.fileKey)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
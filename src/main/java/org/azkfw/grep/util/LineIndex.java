@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.util;
+
+import java.util.Arrays;
+
+/**
+ * このクラスは、文字列の行位置の索引です。
+ * <p>
+ * 改行コード(CR+LF、LF、CR)の開始位置をint配列で保持し、位置から行番号を二分探索で求める。<br/>
+ * 行文字列は保持せず、必要な時に元の文字列から切り出す。<br/>
+ * 生成後は変更されないため、複数のスレッドで共有できる。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+public final class LineIndex {
+
+	/** 文字列 */
+	private final CharSequence source;
+	/** 改行コードの開始位置(昇順) */
+	private final int[] separators;
+	/** 改行コードの数 */
+	private final int size;
+
+	private LineIndex(final CharSequence source, final int[] separators, final int size) {
+		this.source = source;
+		this.separators = separators;
+		this.size = size;
+	}
+
+	/**
+	 * 文字列から索引を生成する。
+	 * 
+	 * @param source 文字列
+	 * @return 索引
+	 */
+	public static LineIndex create(final CharSequence source) {
+		int[] separators = new int[64];
+		int size = 0;
+		final int length = source.length();
+		for (int i = 0; i < length; i++) {
+			final char c = source.charAt(i);
+			if ('\r' == c || '\n' == c) {
+				if (size == separators.length) {
+					separators = Arrays.copyOf(separators, size * 2);
+				}
+				separators[size++] = i;
+				if ('\r' == c && i + 1 < length && '\n' == source.charAt(i + 1)) {
+					i++;
+				}
+			}
+		}
+		return new LineIndex(source, separators, size);
+	}
+
+	/**
+	 * 行数を取得する。
+	 * 
+	 * @return 行数
+	 */
+	public int getLineCount() {
+		return size + 1;
+	}
+
+	/**
+	 * 位置の行番号を取得する。
+	 * <p>
+	 * 改行コード上の位置は次の行とする。
+	 * </p>
+	 * 
+	 * @param offset 位置
+	 * @return 行番号(1始まり)
+	 */
+	public int getLineNo(final int offset) {
+		// offset以前に開始する改行コードの数
+		int index = Arrays.binarySearch(separators, 0, size, offset);
+		if (0 > index) {
+			index = -(index + 1);
+		} else {
+			index++;
+		}
+		return index + 1;
+	}
+
+	/**
+	 * 行の開始位置を取得する。
+	 * 
+	 * @param lineNo 行番号(1始まり)
+	 * @return 開始位置
+	 */
+	public int getLineStart(final int lineNo) {
+		if (1 == lineNo) {
+			return 0;
+		}
+		final int separator = separators[lineNo - 2];
+		if ('\r' == source.charAt(separator) && separator + 1 < source.length() && '\n' == source.charAt(separator + 1)) {
+			return separator + 2;
+		}
+		return separator + 1;
+	}
+
+	/**
+	 * 行の終了位置(改行コードの開始位置)を取得する。
+	 * 
+	 * @param lineNo 行番号(1始まり)
+	 * @return 終了位置
+	 */
+	public int getLineEnd(final int lineNo) {
+		return (lineNo <= size) ? separators[lineNo - 1] : source.length();
+	}
+
+	/**
+	 * 行文字列(改行コードを含まない)を取得する。
+	 * 
+	 * @param lineNo 行番号(1始まり)
+	 * @return 行文字列
+	 */
+	public String getLineString(final int lineNo) {
+		return source.subSequence(getLineStart(lineNo), getLineEnd(lineNo)).toString();
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+import java.nio.ByteBuffer;
+
+/**
+ * このクラスは、ファイル内容がバイナリか判別するクラスです。
+ * <p>
+ * ファイルの先頭部分のみを参照し、NULバイトを含む、または制御文字の割合が一定以上の場合にバイナリとみなす。<br/>
+ * UTF-16・UTF-32はNULバイトを含むため、BOMがある場合はテキストとみなす。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+final class BinaryDetector {
+
+	/** 判別に使用する先頭部分のバイト数 */
+	static final int BLOCK_SIZE = 8192;
+
+	/** バイナリとみなす制御文字の割合(%) */
+	private static final int CONTROL_RATIO = 10;
+
+	private BinaryDetector() {
+	}
+
+	/**
+	 * ファイル内容がバイナリか判別する。
+	 * <p>
+	 * バッファの位置は変更しない。
+	 * </p>
+	 * 
+	 * @param data ファイル内容
+	 * @return バイナリの場合、<code>true</code>を返す。
+	 */
+	static boolean isBinary(final ByteBuffer data) {
+		final int start = data.position();
+		final int length = Math.min(BLOCK_SIZE, data.remaining());
+		if (hasUnicodeBom(data, start, length)) {
+			return false;
+		}
+
+		int controls = 0;
+		for (int i = start; i < start + length; i++) {
+			final int b = data.get(i) & 0xFF;
+			if (0 == b) {
+				return true;
+			}
+			if (0x20 > b && !isTextControl(b)) {
+				controls++;
+			}
+		}
+		return controls * 100 > length * CONTROL_RATIO;
+	}
+
+	/**
+	 * テキストで使用される制御文字か判断する。
+	 * 
+	 * @param b バイト
+	 * @return BS・TAB・LF・FF・CR・SUB・ESC(ISO-2022-JPのエスケープシーケンス)の場合、<code>true</code>を返す。
+	 */
+	private static boolean isTextControl(final int b) {
+		return 0x08 == b || 0x09 == b || 0x0A == b || 0x0C == b || 0x0D == b || 0x1A == b || 0x1B == b;
+	}
+
+	private static boolean hasUnicodeBom(final ByteBuffer data, final int start, final int length) {
+		if (2 > length) {
+			return false;
+		}
+		final int b0 = data.get(start) & 0xFF;
+		final int b1 = data.get(start + 1) & 0xFF;
+		if ((0xFE == b0 && 0xFF == b1) || (0xFF == b0 && 0xFE == b1)) {
+			return true; // UTF-16BE, UTF-16LE, UTF-32LE
+		}
+		return 4 <= length && 0 == b0 && 0 == b1 && 0xFE == (data.get(start + 2) & 0xFF) && 0xFF == (data.get(start + 3) & 0xFF); // UTF-32BE
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * このクラスは、停止要求で中断できる文字シーケンスです。
+ * <p>
+ * 正規表現のマッチング中も一定回数の文字参照ごとに停止要求とスレッドの割り込みを確認し、
+ * 停止している場合は{@link CancellationException}をスローする。
+ * </p>
+ *
+ * @author Kawakicchi
+ */
+public final class CancellableCharSequence implements CharSequence {
+
+	/** 停止確認を行う文字参照回数(2のべき乗-1) */
+	private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+	/** 元の文字シーケンス */
+	private final CharSequence source;
+	/** 停止要求 */
+	private final BooleanSupplier cancelled;
+
+	/** 文字参照回数 */
+	private int count;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param source 元の文字シーケンス
+	 * @param cancelled 停止要求がある場合に<code>true</code>を返す関数
+	 */
+	public CancellableCharSequence(final CharSequence source, final BooleanSupplier cancelled) {
+		this.source = source;
+		this.cancelled = cancelled;
+		this.count = 0;
+	}
+
+	@Override
+	public int length() {
+		return source.length();
+	}
+
+	@Override
+	public char charAt(final int index) {
+		if (0 == (++count & CHECK_INTERVAL_MASK)) {
+			checkCancelled();
+		}
+		return source.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(final int start, final int end) {
+		return new CancellableCharSequence(source.subSequence(start, end), cancelled);
+	}
+
+	@Override
+	public String toString() {
+		return source.toString();
+	}
+
+	/**
+	 * 停止要求を確認する。
+	 *
+	 * @throws CancellationException 停止要求がある場合、またはスレッドが割り込まれた場合
+	 */
+	public void checkCancelled() {
+		if (cancelled.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+	}
+}
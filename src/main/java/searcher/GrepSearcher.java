@@ -17,26 +17,48 @@
  */
 package searcher;
 
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.azkfw.grep.Grep;
+import org.azkfw.grep.GrepConfiguration;
 import org.azkfw.grep.cash.CashFile;
+import org.azkfw.grep.cash.CashForm;
 import org.azkfw.grep.cash.CashStore;
+import org.azkfw.grep.cash.CharsetCash;
+import org.azkfw.grep.entity.BasicGrepStatistics;
+import org.azkfw.grep.entity.CharsetHint;
 import org.azkfw.grep.entity.ContainingText;
+import org.azkfw.grep.entity.GrepBinaryPolicy;
 import org.azkfw.grep.entity.GrepCondition;
 import org.azkfw.grep.entity.GrepMatchFile;
+import org.azkfw.grep.entity.GrepMatchText;
 import org.azkfw.grep.entity.GrepMatchWord;
+import org.azkfw.grep.entity.GrepResultMode;
+import org.azkfw.grep.entity.GrepTargetFile;
+import org.azkfw.grep.matcher.GrepPattern;
+import org.azkfw.grep.matcher.GrepPatternSet;
+import org.azkfw.grep.matcher.LiteralBytePattern;
+import org.azkfw.grep.matcher.LiteralGrepPattern;
 import org.azkfw.grep.util.GrepUtility;
+import org.azkfw.grep.util.LineIndex;
 import org.mozilla.universalchardet.UniversalDetector;
 
 /**
@@ -44,6 +66,18 @@ import org.mozilla.universalchardet.UniversalDetector;
  */
 public class GrepSearcher implements Runnable {
 
+	/** バイナリファイルをデコードする文字セット */
+	private static final String BINARY_CHARSET = "ISO-8859-1";
+
+	/** 1回で読み込むファイルの最大サイズ(配列・メモリマップの上限) */
+	private static final int MAX_READ_SIZE = Integer.MAX_VALUE - 8;
+
+	/** サーチャー終了後もスレッドに残す読み込みバッファの最大サイズ */
+	private static final int MAX_RETAINED_READ_BUFFER_SIZE = 16 * 1024 * 1024;
+
+	/** スレッド毎の読み込みバッファ(同じスレッドで実行するサーチャー間で再利用する) */
+	private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<byte[]>();
+
 	/** Grep */
 	private final Grep grep;
 	/** Grep condition */
@@ -55,9 +89,27 @@ public class GrepSearcher implements Runnable {
 
 	/** Cash */
 	private final CashStore store;
+	/** Statistics */
+	private final BasicGrepStatistics statistics;
 
 	private final String systemEncode;
 
+	/** 実行設定 */
+	private final GrepConfiguration configuration;
+	/** 分割検索(大きなファイルを検索する場合に生成) */
+	private StreamingSearch streamingSearch;
+	/** 読み込みバッファ(ファイル毎に再利用し、終了時にスレッドへ返却する) */
+	private byte[] readBuffer;
+	/** 直前に読み込んだファイル内容 */
+	private CashFile loadedFile;
+	/** 直前に読み込んだファイル内容のデコード済みの文字列(検索文字列に一致しないことが確定した場合、<code>null</code>) */
+	private String loadedSource;
+
+	/** 検索パターン */
+	private final GrepPatternSet patternSet;
+	/** ファイル名に対応する文字セット(使用できる文字セットのみ) */
+	private final List<CharsetHint> charsetHints;
+
 	/**
 	 * コンストラクタ
 	 * 
@@ -78,247 +130,699 @@ public class GrepSearcher implements Runnable {
 	 * @param store Cash
 	 */
 	public GrepSearcher(final Grep parent, final GrepCondition condition, final GrepSearcherListener listener, final CashStore store) {
+		this(parent, condition, listener, store, null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param parent Grep
+	 * @param condition Grep condition
+	 * @param listener Listener
+	 * @param store Cash
+	 * @param statistics Statistics
+	 */
+	public GrepSearcher(final Grep parent, final GrepCondition condition, final GrepSearcherListener listener, final CashStore store,
+			final BasicGrepStatistics statistics) {
+		this(parent, condition, listener, store, statistics, createPatternSet(condition));
+	}
+
+	/**
+	 * コンストラクタ
+	 * <p>
+	 * 検索パターンは{@link #createPatternSet(GrepCondition)}で生成したものを複数のサーチャーで共有できる。
+	 * </p>
+	 * 
+	 * @param parent Grep
+	 * @param condition Grep condition
+	 * @param listener Listener
+	 * @param store Cash
+	 * @param statistics Statistics
+	 * @param patternSet 検索パターン
+	 */
+	public GrepSearcher(final Grep parent, final GrepCondition condition, final GrepSearcherListener listener, final CashStore store,
+			final BasicGrepStatistics statistics, final GrepPatternSet patternSet) {
 		this.grep = parent;
 		this.condition = condition;
 		this.event = new MyGrepSearcherEvent(this);
 		this.listener = listener;
 
 		this.store = store;
+		this.statistics = statistics;
 		this.systemEncode = System.getProperty("file.encoding");
+		this.configuration = GrepUtility.isNotNull(parent) ? parent.getConfiguration() : new GrepConfiguration();
+
+		this.patternSet = patternSet;
+
+		this.charsetHints = new ArrayList<CharsetHint>();
+		for (final CharsetHint hint : condition.getCharsetHints()) {
+			if (isSupported(hint.getCharset())) {
+				charsetHints.add(hint);
+			}
+		}
+	}
+
+	/**
+	 * Grep条件の検索文字列から検索パターンを生成する。
+	 * 
+	 * @param condition Grep condition
+	 * @return 検索パターン
+	 */
+	public static GrepPatternSet createPatternSet(final GrepCondition condition) {
+		final List<GrepPattern> patterns = new ArrayList<GrepPattern>();
+		for (final ContainingText containingText : condition.getContainingTexts()) {
+			patterns.add(containingText.getGrepPattern());
+		}
+		return new GrepPatternSet(patterns);
+	}
+
+	private static boolean isSupported(final String charset) {
+		try {
+			return GrepUtility.isNotEmpty(charset) && Charset.isSupported(charset);
+		} catch (IllegalCharsetNameException ex) {
+			return false;
+		}
 	}
 
 	@Override
 	public void run() {
+		readBuffer = READ_BUFFER.get();
 		try {
 			event.reset();
 			listener.grepSearcherStart(event);
 
 			while (!event.isStop()) {
-				final File file = listener.grepSearcherGetFile(event);
+				final GrepTargetFile file = listener.grepSearcherGetFile(event);
 				if (GrepUtility.isNotNull(file)) {
 					search(file);
-				} else {
-					Thread.sleep(100);
 				}
 			}
-		} catch (InterruptedException ex) {
-			ex.printStackTrace();
 		} finally {
+			releaseReadBuffer();
 			listener.grepSearcherEnd(event);
 		}
 	}
 
-	private static final String REGEX_REPLACE_LINE_SEPARATOR = "\r\n|\r|\n";
+	private void search(final GrepTargetFile file) {
+		try {
+			if (configuration.getStreamingThreshold() < file.getLength() || MAX_READ_SIZE < file.getLength()) {
+				// 1回で読み込めないファイルは分割して検索するファイルサイズに関わらず分割して検索する
+				searchStreaming(file);
+				return;
+			}
 
-	private static final Pattern PTN_RETURN = Pattern.compile("\r\n|\r|\n");
+			final CashFile cashFile = getFile(file);
+			if (GrepUtility.isNull(cashFile)) {
+				unmatchFile(file);
+				return;
+			}
 
-	private static final Pattern PTN_RETURN_CRLF = Pattern.compile("\\r\\n");
+			// ----------------------------------------------------
+			final String source1 = getSource(file, cashFile);
+			if (GrepUtility.isNull(source1)) {
+				unmatchFile(file);
+				return;
+			}
 
-	private static final Pattern PTN_RETURN_LF = Pattern.compile("[^\\r]\\n");
+			final CharSequence cancellable = new CancellableCharSequence(source1, this::isCancelled);
 
-	private static final Pattern PTN_RETURN_CR = Pattern.compile("\\r[^\\n]");
+			final boolean report = cashFile.isBinary() && GrepBinaryPolicy.REPORT == condition.getBinaryPolicy();
+			final GrepResultMode mode = report ? GrepResultMode.FILES : condition.getResultMode();
+			final int maxMatchCount = condition.getMaxMatchCount();
+			final int limit = (GrepResultMode.FILES == mode) ? 1 : maxMatchCount;
 
-	private String rep1(final String src) {
-		return src.replaceAll(REGEX_REPLACE_LINE_SEPARATOR, "\n");
-	}
+			final List<int[]> matches = new ArrayList<int[]>();
+			final int[] count = new int[1];
+			final boolean matchFlag;
+			if (GrepResultMode.WORDS == mode) {
+				matchFlag = patternSet.find(cancellable, (index, start, end) -> matches.add(new int[] { index, start, end }), limit);
+			} else {
+				matchFlag = patternSet.find(cancellable, (index, start, end) -> count[0]++, limit);
+			}
+
+			if (matchFlag) {
+				final List<GrepMatchWord> matchWords = new ArrayList<GrepMatchWord>(matches.size());
+				int matchCount = 0;
+				if (GrepResultMode.WORDS == mode) {
+					// sort
+					Collections.sort(matches, new Comparator<int[]>() {
+						@Override
+						public int compare(final int[] o1, final int[] o2) {
+							return o1[1] - o2[1];
+						}
+					});
+					if (0 < maxMatchCount && maxMatchCount < matches.size()) {
+						matches.subList(maxMatchCount, matches.size()).clear();
+					}
 
-	private String rep2(final String src) {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < src.length(); i++) {
-			char c0 = src.charAt(i);
-			if ('\r' == c0) {
-				if (i + 1 < src.length()) {
-					char c1 = src.charAt(i + 1);
-					if ('\n' == c1) {
-						i++;
+					final VirtualOffsetTable virtualOffsets = VirtualOffsetTable.create(source1);
+					final GrepMatchText text = new GrepMatchText(source1,
+							(CashForm.TEXT == cashFile.getForm()) ? cashFile.getLineIndex() : LineIndex.create(source1));
+					for (final int[] match : matches) {
+						final int start = match[1];
+						final int end = match[2];
+
+						final GrepMatchWord matchWord = new GrepMatchWord(match[0] + 1, text, start, end, virtualOffsets.toVirtual(start),
+								virtualOffsets.toVirtual(end));
+						matchWords.add(matchWord);
 					}
+					matchCount = matchWords.size();
+				} else if (GrepResultMode.COUNT == mode) {
+					matchCount = (0 < maxMatchCount) ? Math.min(count[0], maxMatchCount) : count[0];
 				}
-				sb.append('\n');
-
-			} else if ('\n' == c0) {
-				sb.append('\n');
 
+				matchFile(file, cashFile.getCharset(), cashFile.getLineSeparator(), matchWords, matchCount, report);
 			} else {
-				sb.append(c0);
+				unmatchFile(file);
 			}
+			// ----------------------------------------------------
+
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		} catch (CancellationException ex) {
+			// 停止要求により中断
 		}
-		return sb.toString();
 	}
 
-	private void search(final File file) {
-		try {
-			final CashFile cashFile = getFile(file);
+	/**
+	 * ファイルを分割して読み込みながら検索する。
+	 * <p>
+	 * バイナリの判別・文字セットの判別はファイルの先頭部分から行う。分割して検索したファイルはキャッシュしない。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	private void searchStreaming(final GrepTargetFile file) throws IOException {
+		final ByteBuffer sample = readSample(file);
+		countupReadByte(sample.remaining());
+
+		final boolean binary = BinaryDetector.isBinary(sample);
+		if (binary && GrepBinaryPolicy.SKIP == condition.getBinaryPolicy()) {
+			countupSkippedBinaryFile(file);
+			unmatchFile(file);
+			return;
+		}
+		final boolean report = binary && GrepBinaryPolicy.REPORT == condition.getBinaryPolicy();
+		final String encode = binary ? BINARY_CHARSET : getCharset(file, sample);
 
-			// ----------------------------------------------------
-			final String source1 = cashFile.getSource();
-			// final String source2 = rep1(source1);
-			final String source2 = rep2(source1);
-
-			final List<GrepMatchWord> matchWords = new ArrayList<GrepMatchWord>();
-
-			boolean matchFlag = true;
-			int patternIndex = 1;
-			final List<ContainingText> containingTexts = condition.getContainingTexts();
-			for (final ContainingText containingText : containingTexts) {
-				final Pattern pattern = containingText.getPattern();
-				if (GrepUtility.isNotNull(pattern)) {
-					final Matcher m1 = pattern.matcher(source1);
-					final Matcher m2 = pattern.matcher(source2);
-
-					boolean find = false;
-					while (m1.find() && m2.find()) { // TODO: 該当チェック
-						final String word = source1.substring(m1.start(), m1.end());
-
-						final GrepMatchWord matchWord = new GrepMatchWord(patternIndex, word, m1.start(), m1.end(), m2.start(), m2.end());
-						matchWords.add(matchWord);
+		if (GrepUtility.isNull(streamingSearch)) {
+			streamingSearch = new StreamingSearch(patternSet, configuration.getStreamingWindowSize(), configuration.getStreamingOverlapSize(),
+					this::isCancelled);
+		}
 
-						find = true;
-					}
-					if (!find) {
-						matchFlag = false;
-						break;
-					}
-				}
-				patternIndex++;
+		final GrepResultMode mode = report ? GrepResultMode.FILES : condition.getResultMode();
+		final int maxMatchCount = condition.getMaxMatchCount();
+		final boolean matchFlag;
+		final CountingInputStream stream = new CountingInputStream(new FileInputStream(file.getFile()));
+		try (Reader reader = new InputStreamReader(stream, Charset.forName(encode))) {
+			matchFlag = streamingSearch.search(reader, mode, maxMatchCount);
+		} finally {
+			countupReadByte(stream.getByteCount());
+			countupDecodeByte(stream.getByteCount());
+		}
+
+		if (matchFlag) {
+			List<GrepMatchWord> matchWords = new ArrayList<GrepMatchWord>();
+			int matchCount = 0;
+			if (GrepResultMode.WORDS == mode) {
+				matchWords = streamingSearch.getMatchWords();
+				matchCount = matchWords.size();
+			} else if (GrepResultMode.COUNT == mode) {
+				matchCount = streamingSearch.getMatchCount();
+				matchCount = (0 < maxMatchCount) ? Math.min(matchCount, maxMatchCount) : matchCount;
 			}
+			matchFile(file, encode, binary ? null : streamingSearch.getLineSeparator(), matchWords, matchCount, report);
+		} else {
+			unmatchFile(file);
+		}
+	}
 
-			if (matchFlag) {
-				// sort
-				Collections.sort(matchWords, new Comparator<GrepMatchWord>() {
-					@Override
-					public int compare(final GrepMatchWord o1, final GrepMatchWord o2) {
-						return o1.getStart() - o2.getStart();
-					}
-				});
-
-				// line count
-				final Matcher m = PTN_RETURN.matcher(source1);
-				int lineNo = 1;
-				int index = 0;
-				int last = 0;
-				while (m.find()) {
-					final int start = m.start();
-					final String line = source1.substring(last, start);
-
-					for (int i = index; i < matchWords.size(); i++) {
-						GrepMatchWord w = matchWords.get(i);
-						if (w.getStart() < start) {
-							w.setLine(lineNo, last, line);
-							index++;
-						} else {
-							break;
-						}
-					}
-					last = m.end();
-					lineNo++;
-				}
-				String line = source1.substring(last);
-				for (int i = index; i < matchWords.size(); i++) {
-					matchWords.get(i).setLine(lineNo, last, line);
-				}
+	private void matchFile(final GrepTargetFile file, final String charset, final String lineSeparator, final List<GrepMatchWord> matchWords,
+			final int matchCount, final boolean binary) {
+		final GrepMatchFile matchFile = new GrepMatchFile(file.getFile(), file.getLength(), new Date(file.getLastModified()), charset,
+				lineSeparator, matchWords, matchCount, binary);
 
-				final GrepMatchFile matchFile = new GrepMatchFile(file, file.length(), new Date(file.lastModified()), cashFile.getCharset(),
-						cashFile.getLineSeparator(), matchWords);
+		countupProcessedFile(file, matchCount);
+		listener.grepSearcherMatchFile(matchFile, event);
+	}
 
-				listener.grepSearcherMatchFile(matchFile, event);
-			} else {
-				listener.grepSearcherUnmatchFile(file, event);
-			}
-			// ----------------------------------------------------
+	private void unmatchFile(final GrepTargetFile file) {
+		countupProcessedFile(file, 0);
+		listener.grepSearcherUnmatchFile(file.getFile(), event);
+	}
 
-		} catch (IOException ex) {
-			ex.printStackTrace();
+	/**
+	 * 停止要求有無を判断する。
+	 * 
+	 * @return 停止要求がある場合、<code>true</code>を返す。
+	 */
+	private boolean isCancelled() {
+		return event.isStop() || (GrepUtility.isNotNull(grep) && grep.isStopRequested());
+	}
+
+	private void countupProcessedFile(final GrepTargetFile file, final int matchWords) {
+		if (GrepUtility.isNotNull(statistics)) {
+			statistics.countupProcessedFile(file.getFile(), matchWords);
 		}
 	}
 
-	private CashFile getFile(final File file) throws IOException {
-		if (GrepUtility.isNotNull(store)) {
-			final CashFile cashFile = store.getFile(file);
-			if (GrepUtility.isNotNull(cashFile)) {
-				if (cashFile.isMatch(file)) {
-					return cashFile;
-				}
+	private void countupSkippedBinaryFile(final GrepTargetFile file) {
+		if (GrepUtility.isNotNull(statistics)) {
+			statistics.countupSkippedBinaryFile(file.getFile());
+		}
+	}
+
+	private void countupReadByte(final long length) {
+		if (GrepUtility.isNotNull(statistics)) {
+			statistics.countupReadByte(length);
+		}
+	}
+
+	private void countupDecodeByte(final long length) {
+		if (GrepUtility.isNotNull(statistics)) {
+			statistics.countupDecodeByte(length);
+		}
+	}
+
+	/**
+	 * 検索するファイル内容を取得する。
+	 * <p>
+	 * キャッシュに無い場合は読み込んでキャッシュに登録する。他のサーチャーが同じファイルを読み込み中の場合は、その結果を待機する。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @return ファイル内容。検索文字列に一致しないことが確定した場合、またはバイナリファイルをスキップした場合、<code>null</code>を返す。
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	private CashFile getFile(final GrepTargetFile file) throws IOException {
+		if (GrepUtility.isNull(store)) {
+			return loadFile(file, CashForm.TEXT);
+		}
+
+		final CashForm form = getCashForm();
+		final CashFile cashFile = store.getOrLoad(file, f -> isHintCharset(file, f), () -> loadFile(file, form));
+		if (GrepUtility.isNotNull(cashFile) && cashFile.isBinary() && GrepBinaryPolicy.SKIP == condition.getBinaryPolicy()) {
+			// 他の条件でキャッシュしたバイナリファイル
+			countupSkippedBinaryFile(file);
+			return null;
+		}
+		return cashFile;
+	}
+
+	/**
+	 * キャッシュしたファイル内容の文字セットがファイル名に対応する文字セットと一致するか判断する。
+	 * <p>
+	 * 文字セットを指定せずに読み込んだファイル内容は、指定した時点で読み込み直す。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @param cashFile キャッシュしたファイル内容
+	 * @return 一致する場合、またはファイル名に対応する文字セットが無い場合・バイナリファイルの場合、<code>true</code>を返す。
+	 */
+	private boolean isHintCharset(final GrepTargetFile file, final CashFile cashFile) {
+		final String hint = getHintCharset(file);
+		if (GrepUtility.isNull(hint) || cashFile.isBinary()) {
+			return true;
+		}
+		if (hint.equalsIgnoreCase(cashFile.getCharset())) {
+			return true;
+		}
+		return isSupported(cashFile.getCharset()) && Charset.forName(hint).equals(Charset.forName(cashFile.getCharset()));
+	}
+
+	/**
+	 * キャッシュするファイル内容の保持形式を取得する。
+	 * <p>
+	 * ヒープ外に保持する場合、文字列からバイト列に戻さないように文字列形式はバイト列形式で読み込む。
+	 * </p>
+	 * 
+	 * @return 保持形式
+	 */
+	private CashForm getCashForm() {
+		final CashForm form = configuration.getCashForm();
+		if (CashForm.TEXT == form && store.isOffHeap()) {
+			return CashForm.BYTES;
+		}
+		return form;
+	}
+
+	/**
+	 * 検索するファイル内容の文字列を取得する。
+	 * <p>
+	 * 直前に読み込んだファイル内容は読み込み時にデコードした文字列と判定結果を使用する。文字列形式以外のファイル内容はデコードする。<br/>
+	 * キャッシュしたファイル内容はこの検索条件で読み込んだとは限らないため、デコード前にバイト列で検索文字列の有無を判定する。<br/>
+	 * ヒープ外に保持しているファイル内容はヒープにコピーせずに判定・デコードする。
+	 * 参照を取得する前にキャッシュから破棄された場合は、ファイルを読み込み直す。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @param cashFile ファイル内容
+	 * @return 文字列。検索文字列に一致しないことが確定した場合、<code>null</code>を返す。
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	private String getSource(final GrepTargetFile file, final CashFile cashFile) throws IOException {
+		final boolean loaded = (cashFile == loadedFile);
+		final String source = loadedSource;
+		loadedFile = null;
+		loadedSource = null;
+		if (loaded) {
+			return source;
+		}
+		if (CashForm.TEXT == cashFile.getForm()) {
+			return cashFile.getSource();
+		}
+
+		if (!cashFile.retain()) {
+			final CashFile reload = loadFile(file, CashForm.TEXT);
+			return GrepUtility.isNull(reload) ? null : getSource(file, reload);
+		}
+		try {
+			final ByteBuffer data = cashFile.getBytes();
+			if (!prefilter(data, cashFile.getBytesCharset())) {
+				return null;
 			}
+			countupDecodeByte(data.remaining());
+			return removeBom(decode(data, cashFile.getBytesCharset()));
+		} finally {
+			cashFile.release();
 		}
+	}
 
-		String encode = getCharset(file);
-		if (GrepUtility.isEmpty(encode)) {
-			encode = systemEncode;
+	/**
+	 * ファイル内容を読み込む。
+	 * <p>
+	 * ファイルをバイト列で読み込み、固定文字列の検索文字列をバイト列のまま検索する。<br/>
+	 * 一致しない検索文字列がある場合、キャッシュを使用しなければデコードせずに<code>null</code>を返す。
+	 * キャッシュを使用する場合は別の検索条件で再利用できるようにファイル内容を生成し、一致しないことは{@link #getSource}で判定する。<br/>
+	 * バイナリファイルは文字セットを判別せず、バイナリファイルの扱いに従いスキップまたはISO-8859-1でデコードする。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @param form 保持形式
+	 * @return ファイル内容。キャッシュを使用せずに検索文字列に一致しないことが確定した場合、またはバイナリファイルをスキップした場合、<code>null</code>を返す。
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	private CashFile loadFile(final GrepTargetFile file, final CashForm form) throws IOException {
+		final ByteBuffer data = readFile(file);
+		countupReadByte(data.remaining());
+
+		final boolean binary = BinaryDetector.isBinary(data);
+		if (binary && GrepBinaryPolicy.SKIP == condition.getBinaryPolicy()) {
+			countupSkippedBinaryFile(file);
+			return null;
 		}
 
-		String text = FileUtils.readFileToString(file, encode);
-		if (0 < text.length() && text.charAt(0) == 65279) { // BOM UTF-8 marker
-			text = text.substring(1);
+		final String encode = binary ? BINARY_CHARSET : getCharset(file, data);
+		final Charset charset = Charset.forName(encode);
+
+		final boolean match = prefilter(data, charset);
+		if (!match && GrepUtility.isNull(store)) {
+			return null;
 		}
 
+		final String text = removeBom(decode(data, charset));
+		countupDecodeByte(data.remaining());
+
 		// 改行コード取得
-		final String lineSeparator = getLineSeparator(text);
+		final String lineSeparator = binary ? null : getLineSeparator(text);
+
+		final CashFile cashFile;
+		if (CashForm.TEXT == form) {
+			cashFile = new CashFile(file, encode, lineSeparator, text, binary);
+		} else {
+			// 読み込みバッファは再利用するため複製する
+			final byte[] bytes = new byte[data.remaining()];
+			data.duplicate().get(bytes);
+			if (CashForm.BYTES == form) {
+				cashFile = CashFile.createBytes(file, encode, lineSeparator, bytes, binary);
+			} else {
+				cashFile = CashFile.createCompressed(file, encode, lineSeparator, bytes, binary);
+			}
+		}
+		loadedFile = cashFile;
+		loadedSource = match ? text : null;
+		return cashFile;
+	}
 
-		final CashFile cashFile = new CashFile(file, encode, lineSeparator, text);
+	private static String removeBom(final String text) {
+		if (0 < text.length() && text.charAt(0) == 65279) { // BOM UTF-8 marker
+			return text.substring(1);
+		}
+		return text;
+	}
 
-		if (GrepUtility.isNotNull(store)) {
-			store.push(cashFile);
+	/**
+	 * ファイル内容を読み込む。
+	 * <p>
+	 * メモリマップで読み込むファイルサイズ以上のファイルは{@link FileChannel#map}でマップし、ヒープにコピーしない。<br/>
+	 * それ以外のファイルは再利用する読み込みバッファに1回で読み込む。<br/>
+	 * 返却したバッファの内容は次のファイルを読み込むまで有効。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @return ファイル内容
+	 * @throws IOException IO操作に起因する問題が発生した場合、またはファイルが1回で読み込める最大サイズを超えた場合
+	 */
+	private ByteBuffer readFile(final GrepTargetFile file) throws IOException {
+		if (configuration.getMappingThreshold() <= file.getLength()) {
+			try (FileChannel channel = FileChannel.open(file.getFile().toPath(), StandardOpenOption.READ)) {
+				final long size = channel.size();
+				if (MAX_READ_SIZE < size) {
+					throw new IOException("File is too large to read at once. " + file.getFile().getPath());
+				}
+				return channel.map(MapMode.READ_ONLY, 0, size);
+			}
 		}
 
-		return cashFile;
+		// ファイルサイズ+1の容量で読み込み、ファイルが伸びていなければ拡張せずに終端を検出する
+		final long capacity = Math.min(file.getLength() + 1, MAX_READ_SIZE);
+		if (GrepUtility.isNull(readBuffer) || readBuffer.length < capacity) {
+			readBuffer = new byte[(int) capacity];
+		}
+		int length = 0;
+		try (InputStream stream = new FileInputStream(file.getFile())) {
+			while (true) {
+				if (length == readBuffer.length) {
+					if (MAX_READ_SIZE <= length) {
+						throw new IOException("File is too large to read at once. " + file.getFile().getPath());
+					}
+					readBuffer = Arrays.copyOf(readBuffer, (int) Math.min(2L * readBuffer.length, MAX_READ_SIZE));
+				}
+				final int read = stream.read(readBuffer, length, readBuffer.length - length);
+				if (0 > read) {
+					break;
+				}
+				length += read;
+			}
+		}
+		return ByteBuffer.wrap(readBuffer, 0, length);
+	}
+
+	/**
+	 * 読み込みバッファをスレッドへ返却する。
+	 * <p>
+	 * 大きなファイルで拡張したバッファはスレッドに残さない。
+	 * </p>
+	 */
+	private void releaseReadBuffer() {
+		if (GrepUtility.isNotNull(readBuffer) && MAX_RETAINED_READ_BUFFER_SIZE >= readBuffer.length) {
+			READ_BUFFER.set(readBuffer);
+		} else {
+			READ_BUFFER.remove();
+		}
+		readBuffer = null;
+	}
+
+	/**
+	 * ファイル内容をデコードする。
+	 * 
+	 * @param data ファイル内容
+	 * @param charset 文字セット
+	 * @return 文字列
+	 */
+	private static String decode(final ByteBuffer data, final Charset charset) {
+		if (data.hasArray()) {
+			return new String(data.array(), data.arrayOffset() + data.position(), data.remaining(), charset);
+		}
+		return charset.decode(data.duplicate()).toString();
+	}
+
+	/**
+	 * デコード前のファイル内容に全ての検索文字列が含まれ得るか判断する。
+	 * <p>
+	 * バイト列で判定できる固定文字列のみを検索し、正規表現やバイト列で判定できない文字セットは一致するものとみなす。
+	 * </p>
+	 * 
+	 * @param data ファイル内容
+	 * @param charset 文字セット
+	 * @return 含まれ得る場合、<code>true</code>を返す。
+	 */
+	private boolean prefilter(final ByteBuffer data, final Charset charset) {
+		for (final ContainingText containingText : condition.getContainingTexts()) {
+			final GrepPattern pattern = containingText.getGrepPattern();
+			if (pattern instanceof LiteralGrepPattern) {
+				final LiteralBytePattern bytePattern = ((LiteralGrepPattern) pattern).toBytePattern(charset);
+				if (GrepUtility.isNotNull(bytePattern) && 0 > bytePattern.indexOf(data, data.position(), data.limit())) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	private String getLineSeparator(final String source) {
-		String lineSeparator = null;
-		if (PTN_RETURN_CRLF.matcher(source).find()) {
-			// System.out.println("CRLF");
-			lineSeparator = "\r\n";
-		}
-		if (PTN_RETURN_LF.matcher(source).find()) {
-			// System.out.println("LF");
-			if (null == lineSeparator) {
-				lineSeparator = "\n";
-			} else {
-				lineSeparator = null;
+		final LineSeparatorDetector detector = new LineSeparatorDetector();
+		detector.update(source, 0, source.length());
+		return detector.getLineSeparator();
+	}
+
+	/**
+	 * ファイルの先頭部分を読み込む。
+	 * <p>
+	 * 分割して検索するファイルのバイナリ・文字セットの判別に使用する。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @return ファイルの先頭部分
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	private ByteBuffer readSample(final GrepTargetFile file) throws IOException {
+		final byte[] data = new byte[Math.max(BinaryDetector.BLOCK_SIZE, configuration.getCharsetSampleSize())];
+		int length = 0;
+		try (InputStream stream = new FileInputStream(file.getFile())) {
+			while (length < data.length) {
+				final int read = stream.read(data, length, data.length - length);
+				if (0 > read) {
+					break;
+				}
+				length += read;
 			}
 		}
-		if (PTN_RETURN_CR.matcher(source).find()) {
-			// System.out.println("CR");
-			if (null == lineSeparator) {
-				lineSeparator = "\r";
-			} else {
-				lineSeparator = null;
+		return ByteBuffer.wrap(data, 0, length);
+	}
+
+	/**
+	 * ファイルのエンコードを取得する。
+	 * <p>
+	 * ファイル名に対応する文字セット・文字セットのキャッシュで決まらない場合のみ、ファイル内容から判別する。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @param data ファイル内容(分割して検索するファイルの場合、先頭部分)
+	 * @return エンコード。判別できない場合、システムのエンコードを返す。
+	 */
+	private String getCharset(final GrepTargetFile file, final ByteBuffer data) {
+		String encode = getKnownCharset(file);
+		if (GrepUtility.isNull(encode)) {
+			encode = getCharset(data);
+			putCharsetCash(file, encode);
+		}
+		return GrepUtility.isEmpty(encode) ? systemEncode : encode;
+	}
+
+	/**
+	 * 判別せずに決まるファイルのエンコードを取得する。
+	 * <p>
+	 * ファイル名に対応する文字セット、文字セットのキャッシュの順に参照する。
+	 * </p>
+	 * 
+	 * @param file ファイル
+	 * @return エンコード。判別できなかったことがキャッシュされている場合、空文字列を返す。決まらない場合、<code>null</code>を返す。
+	 */
+	private String getKnownCharset(final GrepTargetFile file) {
+		final String hint = getHintCharset(file);
+		if (GrepUtility.isNotNull(hint)) {
+			return hint;
+		}
+		final CharsetCash cash = configuration.getCharsetCash();
+		if (GrepUtility.isNotNull(cash)) {
+			return cash.get(file);
+		}
+		return null;
+	}
+
+	/**
+	 * ファイル名に対応する文字セットを取得する。
+	 * 
+	 * @param file ファイル
+	 * @return 文字セット。対応する文字セットが無い場合、<code>null</code>を返す。
+	 */
+	private String getHintCharset(final GrepTargetFile file) {
+		final String name = file.getFile().getName();
+		for (final CharsetHint hint : charsetHints) {
+			if (hint.matches(name)) {
+				return hint.getCharset();
 			}
 		}
-		return lineSeparator;
+		return null;
+	}
+
+	private void putCharsetCash(final GrepTargetFile file, final String encode) {
+		final CharsetCash cash = configuration.getCharsetCash();
+		if (GrepUtility.isNotNull(cash)) {
+			cash.put(file, encode);
+		}
 	}
 
 	/**
 	 * ファイル内容からファイルのエンコードを判別する。
+	 * <p>
+	 * 先頭から判別に使用するバイト数までで判別し、判別できない場合のみファイル全体で判別する。<br/>
+	 * どちらも読み込み済みのファイル内容を使用するため、ファイルを再度読み込むことはない。
+	 * </p>
 	 * 
-	 * @param file ファイル
+	 * @param data ファイル内容
+	 * @return エンコード
+	 */
+	private String getCharset(final ByteBuffer data) {
+		final int sampleSize = configuration.getCharsetSampleSize();
+		String charset = detectCharset(data, Math.min(sampleSize, data.remaining()));
+		if (GrepUtility.isEmpty(charset) && sampleSize < data.remaining()) {
+			charset = detectCharset(data, data.remaining());
+		}
+		return charset;
+	}
+
+	/**
+	 * ファイル内容の先頭から指定バイト数でエンコードを判別する。
+	 * <p>
+	 * ヒープ上に無いバッファは一定サイズずつコピーして判別する。
+	 * </p>
+	 * 
+	 * @param data ファイル内容
+	 * @param length 判別に使用するバイト数
 	 * @return エンコード
 	 */
-	private String getCharset(final File file) {
+	private String detectCharset(final ByteBuffer data, final int length) {
 		String charset = null;
-		FileInputStream stream = null;
 		try {
-			stream = new FileInputStream(file);
-
-			int size;
-			final byte[] buf = new byte[4096];
 			final UniversalDetector detector = new UniversalDetector(null);
-			while ((size = stream.read(buf)) > 0 && !detector.isDone()) {
-				detector.handleData(buf, 0, size);
+			if (data.hasArray()) {
+				final int offset = data.arrayOffset() + data.position();
+				for (int i = 0; i < length && !detector.isDone(); i += 4096) {
+					detector.handleData(data.array(), offset + i, Math.min(4096, length - i));
+				}
+			} else {
+				final ByteBuffer buffer = data.duplicate();
+				final byte[] chunk = new byte[4096];
+				for (int i = 0; i < length && !detector.isDone(); i += chunk.length) {
+					final int size = Math.min(chunk.length, length - i);
+					buffer.get(chunk, 0, size);
+					detector.handleData(chunk, 0, size);
+				}
 			}
 			detector.dataEnd();
 			charset = detector.getDetectedCharset();
 		} catch (Exception ex) {
 			ex.printStackTrace();
-		} finally {
-			GrepUtility.release(stream);
 		}
 		return charset;
 	}
 
 	private class MyGrepSearcherEvent implements GrepSearcherEvent {
 
-		private boolean stop;
+		private volatile boolean stop;
 
 		private MyGrepSearcherEvent(final GrepSearcher searcher) {
 			reset();
@@ -20,6 +20,7 @@ package searcher;
 import java.io.File;
 
 import org.azkfw.grep.entity.GrepMatchFile;
+import org.azkfw.grep.entity.GrepTargetFile;
 
 /**
  * このインターフェースは、サーチャーのイベントを定義したリスナーインターフェースです。
@@ -33,7 +34,7 @@ public interface GrepSearcherListener {
 
 	void grepSearcherEnd(GrepSearcherEvent event);
 
-	File grepSearcherGetFile(GrepSearcherEvent event);
+	GrepTargetFile grepSearcherGetFile(GrepSearcherEvent event);
 
 	void grepSearcherMatchFile(GrepMatchFile matchFile, GrepSearcherEvent event);
 
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+/**
+ * このクラスは、文字列で使用されている改行コードを判別するクラスです。
+ * <p>
+ * 文字列を分割して順に渡すことができる。<br/>
+ * 複数の改行コードが混在する場合、判別できないものとする。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+final class LineSeparatorDetector {
+
+	/** CR+LFの有無 */
+	private boolean crlf;
+	/** LFの有無 */
+	private boolean lf;
+	/** CRの有無 */
+	private boolean cr;
+	/** 直前の文字(先頭の場合、-1) */
+	private int last;
+
+	/**
+	 * コンストラクタ
+	 */
+	LineSeparatorDetector() {
+		last = -1;
+	}
+
+	/**
+	 * 文字列を判別対象に追加する。
+	 * 
+	 * @param text 文字シーケンス
+	 * @param start 開始位置
+	 * @param end 終了位置(この位置の文字は含まない)
+	 */
+	void update(final CharSequence text, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			final char c = text.charAt(i);
+			if ('\n' == c) {
+				if ('\r' == last) {
+					crlf = true;
+				} else if (-1 != last) {
+					lf = true;
+				}
+			} else if ('\r' == last) {
+				cr = true;
+			}
+			last = c;
+		}
+	}
+
+	/**
+	 * 改行コードを取得する。
+	 * 
+	 * @return 改行コード。判別できない場合、<code>null</code>を返す。
+	 */
+	String getLineSeparator() {
+		String lineSeparator = null;
+		if (crlf) {
+			lineSeparator = "\r\n";
+		}
+		if (lf) {
+			lineSeparator = (null == lineSeparator) ? "\n" : null;
+		}
+		if (cr) {
+			lineSeparator = (null == lineSeparator) ? "\r" : null;
+		}
+		return lineSeparator;
+	}
+}
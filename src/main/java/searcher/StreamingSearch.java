@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.azkfw.grep.entity.GrepMatchWord;
+import org.azkfw.grep.entity.GrepResultMode;
+import org.azkfw.grep.matcher.GrepPatternSet;
+import org.azkfw.grep.util.LineIndex;
+
+/**
+ * このクラスは、ファイル内容を分割して読み込みながら検索するクラスです。
+ * <p>
+ * 固定長の文字バッファに読み込み、最後の改行コードまでを1つの分割として検索する。<br/>
+ * 分割に改行コードが無い(1行が分割の文字数を超える)場合、重ねる文字数を残して分割し次の分割で再度検索する。<br/>
+ * 文字バッファはインスタンス内で再利用するため、同時に複数のスレッドから使用しないこと。
+ * </p>
+ * <p>
+ * 以下はファイル全体を検索する場合と結果が異なる。
+ * <ul>
+ * <li>複数行にまたがる一致は見つからない。</li>
+ * <li>行頭・行末以外の<code>^</code>、<code>$</code>は分割の先頭・末尾に一致する。</li>
+ * <li>分割の文字数を超える行の行文字列は、一致した分割に含まれる部分のみとする。</li>
+ * <li>{@link GrepResultMode#FILES}で検索を打ち切った場合、改行コードは読み込んだ部分から判別する。</li>
+ * <li>{@link GrepResultMode#WORDS}で終了位置が<code>int</code>の範囲を超える一致は、一致ワードとして返さない(一致の判定には含める)。</li>
+ * </ul>
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+final class StreamingSearch {
+
+	/** 検索パターン */
+	private final GrepPatternSet patternSet;
+	/** 重ねる文字数 */
+	private final int overlapSize;
+	/** 停止要求 */
+	private final BooleanSupplier cancelled;
+
+	/** 文字バッファ */
+	private final char[] buffer;
+
+	/** 一致ワード */
+	private final List<GrepMatchWord> matchWords;
+	/** パターン毎の一致数 */
+	private int[] counts;
+	/** 改行コード */
+	private String lineSeparator;
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param patternSet 検索パターン
+	 * @param windowSize 1回あたりの文字数
+	 * @param overlapSize 重ねる文字数
+	 * @param cancelled 停止要求がある場合に<code>true</code>を返す関数
+	 */
+	StreamingSearch(final GrepPatternSet patternSet, final int windowSize, final int overlapSize, final BooleanSupplier cancelled) {
+		this.patternSet = patternSet;
+		this.buffer = new char[Math.max(2, windowSize)];
+		this.overlapSize = Math.min(overlapSize, buffer.length / 2);
+		this.cancelled = cancelled;
+		this.matchWords = new ArrayList<GrepMatchWord>();
+	}
+
+	/**
+	 * 検索する。
+	 * 
+	 * @param reader ファイル内容
+	 * @param mode 検索結果の種類
+	 * @param maxMatchCount 最大一致数(0の場合、無制限)
+	 * @return 全てのパターンが一致した場合、<code>true</code>を返す。
+	 * @throws IOException IO操作に起因する問題が発生した場合
+	 */
+	boolean search(final Reader reader, final GrepResultMode mode, final int maxMatchCount) throws IOException {
+		final int size = patternSet.size();
+		final int limit = (GrepResultMode.FILES == mode) ? 1 : maxMatchCount;
+		final boolean[] skip = new boolean[size];
+		final long[] nextAllowed = new long[size];
+		final LineSeparatorDetector detector = new LineSeparatorDetector();
+
+		matchWords.clear();
+		counts = new int[size];
+		for (int i = 0; i < size; i++) {
+			skip[i] = !patternSet.isRequired(i);
+		}
+
+		long windowOffset = 0; // 分割の先頭位置
+		long virtualOffset = 0; // 分割の先頭位置(改行コードをLFにしたもの)
+		long lineStart = 0; // 分割の先頭行の開始位置
+		int lineNo = 1; // 分割の先頭行の行番号
+		int length = 0; // バッファ内の文字数
+		boolean eof = false;
+		boolean first = true;
+		while (!eof && !isFinished(skip)) {
+			// 読み込み
+			while (length < buffer.length) {
+				final int read = reader.read(buffer, length, buffer.length - length);
+				if (0 > read) {
+					eof = true;
+					break;
+				}
+				length += read;
+			}
+			if (first) {
+				first = false;
+				if (0 < length && 65279 == buffer[0]) { // BOM UTF-8 marker
+					System.arraycopy(buffer, 1, buffer, 0, --length);
+				}
+			}
+
+			// 分割位置
+			int cut = length;
+			boolean lineBounded = true;
+			if (!eof) {
+				cut = lastLineEnd(length);
+				if (0 == cut) {
+					lineBounded = false;
+					cut = length - overlapSize;
+					if ('\r' == buffer[cut - 1] && 1 < cut) {
+						cut--;
+					}
+				}
+			}
+
+			final CharSequence window = CharBuffer.wrap(buffer, 0, length);
+			final LineIndex index = LineIndex.create(window);
+			final VirtualOffsetTable virtualOffsets = (GrepResultMode.WORDS == mode) ? VirtualOffsetTable.create(window) : null;
+			final Map<Integer, String> lineStrings = new HashMap<Integer, String>();
+			final long offset = windowOffset;
+			final long virtualBase = virtualOffset;
+			final long firstLineStart = lineStart;
+			final int firstLineNo = lineNo;
+			final int windowCut = cut;
+			final boolean last = eof;
+			patternSet.findEach(new CancellableCharSequence(window, cancelled), (pattern, start, end) -> {
+				if (start > windowCut || (start == windowCut && !last) || skip[pattern] || offset + start < nextAllowed[pattern]) {
+					return;
+				}
+				nextAllowed[pattern] = offset + end;
+				counts[pattern]++;
+				if (0 < limit && limit <= counts[pattern]) {
+					skip[pattern] = true;
+				}
+				// 一致ワードの位置はintのため、表現できない位置の一致は返さない(仮想位置・行の開始位置は終了位置以下)
+				if (GrepResultMode.WORDS == mode && offset + end <= Integer.MAX_VALUE) {
+					final int no = index.getLineNo(start);
+					final String string = lineStrings.computeIfAbsent(no, index::getLineString);
+					final GrepMatchWord matchWord = new GrepMatchWord(pattern + 1, window.subSequence(start, end).toString(),
+							(int) (offset + start), (int) (offset + end), (int) (virtualBase + virtualOffsets.toVirtual(start)),
+							(int) (virtualBase + virtualOffsets.toVirtual(end)));
+					matchWord.setLine(firstLineNo + no - 1, (int) ((1 == no) ? firstLineStart : offset + index.getLineStart(no)), string);
+					matchWords.add(matchWord);
+				}
+			}, skip);
+
+			// 次の分割
+			detector.update(window, 0, cut);
+			final int lines = index.getLineNo(cut - 1) - 1;
+			lineNo += lines;
+			if (lineBounded) {
+				lineStart = windowOffset + cut;
+			}
+			virtualOffset += (null != virtualOffsets) ? virtualOffsets.toVirtual(cut) : 0;
+			windowOffset += cut;
+			length -= cut;
+			System.arraycopy(buffer, cut, buffer, 0, length);
+		}
+		lineSeparator = detector.getLineSeparator();
+
+		for (int i = 0; i < size; i++) {
+			if (patternSet.isRequired(i) && 0 == counts[i]) {
+				matchWords.clear();
+				return false;
+			}
+		}
+
+		if (GrepResultMode.WORDS == mode) {
+			Collections.sort(matchWords, new Comparator<GrepMatchWord>() {
+				@Override
+				public int compare(final GrepMatchWord o1, final GrepMatchWord o2) {
+					final int result = Integer.compare(o1.getStart(), o2.getStart());
+					return (0 != result) ? result : Integer.compare(o1.getPattern(), o2.getPattern());
+				}
+			});
+			if (0 < maxMatchCount && maxMatchCount < matchWords.size()) {
+				matchWords.subList(maxMatchCount, matchWords.size()).clear();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 一致ワードを取得する。
+	 * 
+	 * @return 一致ワード(開始位置順)
+	 */
+	List<GrepMatchWord> getMatchWords() {
+		return new ArrayList<GrepMatchWord>(matchWords);
+	}
+
+	/**
+	 * 一致数を取得する。
+	 * 
+	 * @return パターン毎の一致数の合計
+	 */
+	int getMatchCount() {
+		int count = 0;
+		for (final int value : counts) {
+			count += value;
+		}
+		return count;
+	}
+
+	/**
+	 * 改行コードを取得する。
+	 * 
+	 * @return 改行コード。判別できない場合、<code>null</code>を返す。
+	 */
+	String getLineSeparator() {
+		return lineSeparator;
+	}
+
+	/**
+	 * 全てのパターンの検索を終えたか判断する。
+	 * 
+	 * @param skip 検索しないパターン
+	 * @return 全てのパターンを検索しない場合、<code>true</code>を返す。
+	 */
+	private static boolean isFinished(final boolean[] skip) {
+		for (final boolean value : skip) {
+			if (!value) {
+				return false;
+			}
+		}
+		return 0 < skip.length;
+	}
+
+	/**
+	 * 最後の行の終了位置(改行コードの次の位置)を取得する。
+	 * <p>
+	 * バッファ末尾のCRは次の文字がLFの可能性があるため、行の終了とみなさない。
+	 * </p>
+	 * 
+	 * @param length バッファ内の文字数
+	 * @return 終了位置。改行コードが無い場合、0を返す。
+	 */
+	private int lastLineEnd(final int length) {
+		for (int i = length - 1; 0 <= i; i--) {
+			final char c = buffer[i];
+			if ('\n' == c || ('\r' == c && i < length - 1)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+import java.util.Arrays;
+
+/**
+ * このクラスは、改行コードをLFに置き換えた文字列上の位置(仮想位置)を求める表です。
+ * <p>
+ * CRLFは1文字のLFに、CRは1文字のLFに置き換わるため、仮想位置は元の位置からそれより前にあるCRLFの数を引いた値になる。<br/>
+ * CRLFのLFの位置だけを保持するため、置き換えた文字列を生成せずに求められる。
+ * </p>
+ * 
+ * @author Kawakicchi
+ */
+final class VirtualOffsetTable {
+
+	/** CRLFを含まない文字列の表 */
+	private static final VirtualOffsetTable EMPTY = new VirtualOffsetTable(new int[0], 0);
+
+	/** CRLFのLFの位置(昇順) */
+	private final int[] positions;
+	/** CRLFの数 */
+	private final int size;
+
+	private VirtualOffsetTable(final int[] positions, final int size) {
+		this.positions = positions;
+		this.size = size;
+	}
+
+	/**
+	 * 文字列から表を生成する。
+	 * 
+	 * @param source 文字シーケンス
+	 * @return 表
+	 */
+	static VirtualOffsetTable create(final CharSequence source) {
+		int[] positions = null;
+		int size = 0;
+		final int length = source.length();
+		for (int index = 1; index < length; index++) {
+			if ('\n' == source.charAt(index) && '\r' == source.charAt(index - 1)) {
+				if (null == positions) {
+					positions = new int[16];
+				} else if (size == positions.length) {
+					positions = Arrays.copyOf(positions, size * 2);
+				}
+				positions[size++] = index;
+			}
+		}
+		return (0 == size) ? EMPTY : new VirtualOffsetTable(positions, size);
+	}
+
+	/**
+	 * 仮想位置を取得する。
+	 * 
+	 * @param offset 元の文字列の位置
+	 * @return 改行コードをLFに置き換えた文字列上の位置
+	 */
+	int toVirtual(final int offset) {
+		if (0 == size) {
+			return offset;
+		}
+		// offsetより前にあるLFの数
+		int index = Arrays.binarySearch(positions, 0, size, offset);
+		if (0 > index) {
+			index = -(index + 1);
+		}
+		return offset - index;
+	}
+}
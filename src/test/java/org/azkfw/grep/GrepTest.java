@@ -17,13 +17,34 @@
  */
 package org.azkfw.grep;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
 import junit.framework.TestCase;
 
+import org.azkfw.grep.cash.CashForm;
 import org.azkfw.grep.cash.CashStore;
+import org.azkfw.grep.cash.CharsetCash;
+import org.azkfw.grep.entity.CharsetHint;
 import org.azkfw.grep.entity.ContainingText;
 import org.azkfw.grep.entity.FileNamePattern;
+import org.azkfw.grep.entity.GrepBinaryPolicy;
 import org.azkfw.grep.entity.GrepCondition;
+import org.azkfw.grep.entity.GrepMatchFile;
+import org.azkfw.grep.entity.GrepMatchWord;
+import org.azkfw.grep.entity.GrepResult;
+import org.azkfw.grep.entity.GrepResultMode;
 import org.azkfw.grep.entity.GrepStatistics;
+import org.azkfw.grep.entity.GrepTargetFile;
 import org.azkfw.grep.entity.TargetDirectory;
 import org.azkfw.grep.util.FormatUtility;
 import org.junit.Test;
@@ -77,4 +98,598 @@ public class GrepTest extends TestCase {
 			System.out.println(String.format("Read size %s", FormatUtility.byteToString(statistics.getTotalTargetFileLength())));
 		}
 	}
+
+	@Test
+	public void testSubmit() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+		condition.addFileNamePattern(new FileNamePattern("*.sql"));
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Grep grep = new Grep();
+		grep.addGrepListener(new GrepAdapter() {
+			@Override
+			public void grepFindFile(final GrepEvent e, final GrepMatchFile f) {
+				try {
+					latch.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		final long tmStart = System.nanoTime();
+		final CompletableFuture<GrepResult> future = grep.submit(condition);
+		// 実行中は開始できない
+		assertTrue(grep.submit(condition).isCompletedExceptionally());
+		latch.countDown();
+
+		final GrepResult result = future.get();
+		final long tmEnd = System.nanoTime();
+		assertEquals(11, result.getMatchFiles().size());
+		final GrepStatistics statistics = grep.getStatistics();
+		assertEquals(11, statistics.getHitFileCount());
+		assertEquals(statistics.getTargetFileCount(), statistics.getProcessedFileCount());
+		assertTrue(statistics.getMatchWordCount() >= 11);
+		// 経過時間は実行前後の時間に収まり、終了後は固定される
+		final long elapsed = statistics.getElapsedNanoTime();
+		assertTrue(0 < elapsed && elapsed <= tmEnd - tmStart);
+		Thread.sleep(10);
+		assertEquals(elapsed, statistics.getElapsedNanoTime());
+
+		// 終了後は再実行できる
+		assertEquals(11, grep.submit(condition).get().getMatchFiles().size());
+	}
+
+	@Test
+	public void testListenerThread() throws InterruptedException, ExecutionException {
+		final Thread caller = Thread.currentThread();
+		final List<Object> events = Collections.synchronizedList(new ArrayList<Object>());
+		final Grep grep = new Grep();
+		grep.addGrepListener(new GrepAdapter() {
+			@Override
+			public void grepStart(final GrepEvent e) {
+				events.add(Thread.currentThread());
+			}
+
+			@Override
+			public void grepFinished(final GrepEvent e, final GrepResult r) {
+				// 終了通知中は統計情報・結果をリセットさせない
+				events.add(e.getSource().start(newSqlCondition()));
+				events.add(r.getMatchFiles().size());
+			}
+		});
+
+		assertEquals(11, grep.submit(newSqlCondition()).get().getMatchFiles().size());
+		assertEquals(3, events.size());
+		assertTrue(caller != events.get(0));
+		assertEquals(Boolean.FALSE, events.get(1));
+		assertEquals(11, events.get(2));
+		assertEquals(11, grep.getStatistics().getHitFileCount());
+		grep.shutdown();
+	}
+
+	@Test
+	public void testService() throws InterruptedException, ExecutionException {
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setSearcherSize(2);
+		configuration.setSliceSize(1);
+		final GrepService service = new GrepService(new CashStore(), configuration);
+
+		final GrepCondition condition1 = new GrepCondition();
+		condition1.addContainingText(new ContainingText("SELECT"));
+		condition1.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final GrepCondition condition2 = new GrepCondition();
+		condition2.addContainingText(new ContainingText("SELECT"));
+		condition2.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+		condition2.addFileNamePattern(new FileNamePattern("UTF-8*.sql"));
+
+		final Grep session1 = service.submit(condition1);
+		final Grep session2 = service.submit(condition2);
+
+		assertEquals(11, session1.getFuture().get().getMatchFiles().size());
+		assertEquals(3, session2.getFuture().get().getMatchFiles().size());
+		assertEquals(11, session1.getStatistics().getHitFileCount());
+		assertEquals(3, session2.getStatistics().getHitFileCount());
+
+		service.shutdown();
+	}
+
+	@Test
+	public void testBatchListener() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setAsyncDispatch(true);
+		configuration.setSearcherSize(1);
+		configuration.setDispatchQueueSize(16);
+		configuration.setDispatchBatchSize(4);
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> events = new ArrayList<String>();
+		final List<Integer> batches = new ArrayList<Integer>();
+		final Grep grep = new Grep(null, configuration);
+		grep.addGrepListener(new GrepBatchListener() {
+			@Override
+			public void grepStart(final GrepEvent e) {
+				events.add("start");
+				// 見つかったファイルがキューに溜まるまでディスパッチャーを止める
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public void grepFindFiles(final GrepEvent e, final List<GrepMatchFile> files) {
+				batches.add(files.size());
+				for (int i = 0; i < files.size(); i++) {
+					events.add("find");
+				}
+			}
+
+			@Override
+			public void grepFindFile(final GrepEvent e, final GrepMatchFile f) {
+				events.add("single");
+			}
+
+			@Override
+			public void grepFinished(final GrepEvent e, final GrepResult r) {
+				events.add("finished");
+			}
+		});
+
+		final CompletableFuture<GrepResult> future = grep.submit(condition);
+		// サーチャーが1つのため、11件目を検出した時点で10件目までの通知はキューに入っている
+		while (grep.getStatistics().getHitFileCount() < 11) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		assertEquals(11, future.get().getMatchFiles().size());
+		// 開始・検出・終了の順に通知され、終了通知後にFutureが完了する
+		assertEquals(13, events.size());
+		assertEquals("start", events.get(0));
+		assertEquals(11, events.subList(1, 12).stream().filter("find"::equals).count());
+		assertEquals("finished", events.get(12));
+		// キューに溜まった通知はまとめて通知する
+		assertEquals(11, batches.stream().mapToInt(Integer::intValue).sum());
+		assertEquals(4, (int) Collections.max(batches));
+		grep.shutdown();
+	}
+
+	@Test
+	public void testOverflowCallerRuns() throws InterruptedException, ExecutionException {
+		final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+		final List<GrepMatchFile> found = Collections.synchronizedList(new ArrayList<GrepMatchFile>());
+		final Grep grep = new Grep(null, newOverflowConfiguration(GrepOverflowPolicy.CALLER_RUNS));
+		final SlowStartListener listener = new SlowStartListener() {
+			@Override
+			public void grepFindFile(final GrepEvent e, final GrepMatchFile f) {
+				threads.add(Thread.currentThread().getName());
+				found.add(f);
+			}
+		};
+		grep.addGrepListener(listener);
+
+		final GrepResult result = grep.submit(newSqlCondition()).get();
+		assertEquals(11, result.getMatchFiles().size());
+		// 溢れた通知もサーチャースレッドで全て通知する
+		assertEquals(11, found.size());
+		assertTrue(threads.stream().anyMatch(name -> !name.equals(listener.startThread)));
+		assertTrue(listener.finished);
+		grep.shutdown();
+	}
+
+	@Test
+	public void testOverflowDrop() throws InterruptedException, ExecutionException {
+		final List<GrepMatchFile> found = Collections.synchronizedList(new ArrayList<GrepMatchFile>());
+		final Grep grep = new Grep(null, newOverflowConfiguration(GrepOverflowPolicy.DROP));
+		final SlowStartListener listener = new SlowStartListener() {
+			@Override
+			public void grepFindFile(final GrepEvent e, final GrepMatchFile f) {
+				found.add(f);
+			}
+		};
+		grep.addGrepListener(listener);
+
+		final GrepResult result = grep.submit(newSqlCondition()).get();
+		// 溢れた通知は破棄するが、結果には含める
+		assertEquals(11, result.getMatchFiles().size());
+		assertTrue(found.size() < 11);
+		assertTrue(listener.finished);
+		grep.shutdown();
+	}
+
+	private static GrepCondition newSqlCondition() {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+		return condition;
+	}
+
+	private static GrepConfiguration newOverflowConfiguration(final GrepOverflowPolicy policy) {
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setAsyncDispatch(true);
+		configuration.setSearcherSize(1);
+		configuration.setDispatchQueueSize(1);
+		configuration.setOverflowPolicy(policy);
+		return configuration;
+	}
+
+	/**
+	 * このクラスは、開始通知でディスパッチャーを止め、通知キューを溢れさせるリスナーです。
+	 */
+	private static class SlowStartListener extends GrepAdapter {
+
+		private volatile String startThread;
+		private volatile boolean finished;
+
+		@Override
+		public void grepStart(final GrepEvent e) {
+			startThread = Thread.currentThread().getName();
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void grepFinished(final GrepEvent e, final GrepResult r) {
+			finished = true;
+		}
+	}
+
+	@Test
+	public void testParallelScanner() throws InterruptedException, ExecutionException {
+		// キューが満杯の間、スキャンのワーカースレッドは待機する
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setScannerParallelism(4);
+		configuration.setSearcherSize(1);
+		configuration.setQueueSize(1);
+		final Grep grep = new Grep(null, configuration);
+		assertEquals(11, grep.submit(newSqlCondition()).get().getMatchFiles().size());
+		assertEquals(grep.getStatistics().getTargetFileCount(), grep.getStatistics().getProcessedFileCount());
+		grep.shutdown();
+	}
+
+	@Test
+	public void testResultMode() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addContainingText(new ContainingText("FROM"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final Grep grep = new Grep();
+		final List<GrepMatchFile> words = grep.submit(condition).get().getMatchFiles();
+
+		condition.setResultMode(GrepResultMode.COUNT);
+		final List<GrepMatchFile> counts = grep.submit(condition).get().getMatchFiles();
+		assertEquals(words.size(), counts.size());
+		assertEquals(sumMatchCount(words), sumMatchCount(counts));
+		for (final GrepMatchFile file : counts) {
+			assertTrue(file.getWords().isEmpty());
+		}
+
+		condition.setResultMode(GrepResultMode.FILES);
+		final List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertEquals(words.size(), files.size());
+		assertEquals(0, sumMatchCount(files));
+
+		condition.setResultMode(GrepResultMode.WORDS);
+		condition.setMaxMatchCount(1);
+		for (final GrepMatchFile file : grep.submit(condition).get().getMatchFiles()) {
+			assertEquals(1, file.getWords().size());
+			assertEquals(1, file.getMatchCount());
+		}
+		grep.shutdown();
+	}
+
+	@Test
+	public void testStreaming() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addContainingText(new ContainingText("FROM"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final Grep grep = new Grep();
+		final List<GrepMatchFile> expected = sortByPath(grep.submit(condition).get().getMatchFiles());
+		grep.shutdown();
+
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setStreamingThreshold(1);
+		configuration.setStreamingWindowSize(64);
+		configuration.setStreamingOverlapSize(16);
+		final Grep streaming = new Grep(new CashStore(), configuration);
+		final List<GrepMatchFile> actual = sortByPath(streaming.submit(condition).get().getMatchFiles());
+		streaming.shutdown();
+
+		assertSameResult(expected, actual);
+	}
+
+	@Test
+	public void testCashUnmatchFile() throws InterruptedException, ExecutionException {
+		for (final CashForm form : CashForm.values()) {
+			final GrepConfiguration configuration = new GrepConfiguration();
+			configuration.setCashForm(form);
+			final Grep grep = new Grep(new CashStore(), configuration);
+
+			// 一致しなかったファイルもキャッシュし、次の検索では読み込まない
+			final GrepCondition unmatch = new GrepCondition();
+			unmatch.addContainingText(new ContainingText("ZZZNOTTHERE"));
+			unmatch.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+			assertEquals(0, grep.submit(unmatch).get().getMatchFiles().size());
+			assertTrue(0 < grep.getStatistics().getReadByteLength());
+
+			assertEquals(11, grep.submit(newSqlCondition()).get().getMatchFiles().size());
+			assertEquals(0, grep.getStatistics().getReadByteLength());
+			grep.shutdown();
+		}
+	}
+
+	@Test
+	public void testCashForm() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final Grep grep = new Grep();
+		final List<GrepMatchFile> expected = sortByPath(grep.submit(condition).get().getMatchFiles());
+		grep.shutdown();
+
+		for (int k = 0; k <= CashForm.values().length; k++) {
+			final GrepConfiguration configuration = new GrepConfiguration();
+			final CashStore store;
+			if (k < CashForm.values().length) {
+				configuration.setCashForm(CashForm.values()[k]);
+				store = new CashStore();
+			} else {
+				// ヒープ外に保持する
+				store = new CashStore(1024 * 1024, 1024 * 1024, 16, 1024 * 1024, null);
+			}
+			final Grep cashed = new Grep(store, configuration);
+			// 2回目はキャッシュから検索する
+			for (int n = 0; n < 2; n++) {
+				assertSameResult(expected, sortByPath(cashed.submit(condition).get().getMatchFiles()));
+			}
+			cashed.shutdown();
+		}
+	}
+
+	@Test
+	public void testMapping() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addContainingText(new ContainingText("FROM"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final Grep grep = new Grep();
+		final List<GrepMatchFile> expected = sortByPath(grep.submit(condition).get().getMatchFiles());
+		grep.shutdown();
+
+		// 全てのファイルをメモリマップで読み込む
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setMappingThreshold(1);
+		final Grep mapping = new Grep(null, configuration);
+		final List<GrepMatchFile> actual = sortByPath(mapping.submit(condition).get().getMatchFiles());
+		mapping.shutdown();
+
+		assertSameResult(expected, actual);
+	}
+
+	@Test
+	public void testCharsetHint() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+		condition.addCharsetHint(new CharsetHint("*.sql", "ISO-8859-1"));
+
+		final Grep grep = new Grep();
+		final List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertFalse(files.isEmpty());
+		for (final GrepMatchFile file : files) {
+			assertEquals("ISO-8859-1", file.getCharset());
+		}
+		grep.shutdown();
+	}
+
+	@Test
+	public void testCharsetHintWithCash() throws InterruptedException, ExecutionException {
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final Grep grep = new Grep(new CashStore());
+		final List<GrepMatchFile> detected = grep.submit(condition).get().getMatchFiles();
+		assertTrue(detected.stream().anyMatch(f -> !"ISO-8859-1".equals(f.getCharset())));
+
+		// キャッシュ済みのファイルも指定した文字セットで読み込み直す
+		condition.addCharsetHint(new CharsetHint("*.sql", "ISO-8859-1"));
+		final List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertEquals(detected.size(), files.size());
+		for (final GrepMatchFile file : files) {
+			assertEquals("ISO-8859-1", file.getCharset());
+		}
+		grep.shutdown();
+	}
+
+	@Test
+	public void testCharsetCash() throws InterruptedException, ExecutionException, IOException {
+		final File file = File.createTempFile("charset", ".txt");
+		file.deleteOnExit();
+		assertTrue(file.delete());
+
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory("src/test/resource/sql"));
+
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setCharsetCash(new CharsetCash(file));
+		final Grep grep = new Grep(null, configuration);
+		final List<GrepMatchFile> expected = sortByPath(grep.submit(condition).get().getMatchFiles());
+		assertTrue(file.isFile());
+
+		// 保存したキャッシュを読み込んで検索しても結果は変わらない
+		final CharsetCash cash = new CharsetCash(file);
+		assertEquals(configuration.getCharsetCash().size(), cash.size());
+		configuration.setCharsetCash(cash);
+		final List<GrepMatchFile> actual = sortByPath(grep.submit(condition).get().getMatchFiles());
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getPath(), actual.get(i).getPath());
+			assertEquals(expected.get(i).getCharset(), actual.get(i).getCharset());
+		}
+		grep.shutdown();
+	}
+
+	@Test
+	public void testCharsetSample() throws InterruptedException, ExecutionException, IOException {
+		// 先頭部分はASCIIのみで判別できず、ファイル全体で判別する
+		final File file = newCharsetSampleFile(16384);
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("検索"));
+		condition.addTargetDirectory(new TargetDirectory(file.getParent()));
+
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setCharsetSampleSize(1024);
+		configuration.setCharsetCash(new CharsetCash());
+		final Grep grep = new Grep(null, configuration);
+		final List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertEquals(1, files.size());
+		assertEquals("UTF-8", files.get(0).getCharset());
+		assertEquals(1, files.get(0).getWords().size());
+		assertEquals("UTF-8", configuration.getCharsetCash().get(new GrepTargetFile(file)));
+		grep.shutdown();
+	}
+
+	@Test
+	public void testCharsetSampleSize() throws InterruptedException, ExecutionException, IOException {
+		// 分割して検索するファイルは先頭部分のみで判別するため、判別に使用するバイト数で結果が変わる
+		final File file = newCharsetSampleFile(16384);
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory(file.getParent()));
+
+		final GrepConfiguration configuration = new GrepConfiguration();
+		configuration.setStreamingThreshold(1);
+		configuration.setCharsetSampleSize(1024);
+		configuration.setCharsetCash(new CharsetCash());
+		final Grep grep = new Grep(null, configuration);
+		assertEquals(1, grep.submit(condition).get().getMatchFiles().size());
+		assertEquals("", configuration.getCharsetCash().get(new GrepTargetFile(file)));
+
+		configuration.setCharsetSampleSize(32768);
+		configuration.setCharsetCash(new CharsetCash());
+		final List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertEquals(1, files.size());
+		assertEquals("UTF-8", files.get(0).getCharset());
+		assertEquals("UTF-8", configuration.getCharsetCash().get(new GrepTargetFile(file)));
+		grep.shutdown();
+	}
+
+	private static File newCharsetSampleFile(final int asciiSize) throws IOException {
+		final File directory = Files.createTempDirectory("charset").toFile();
+		final File file = new File(directory, "sample.sql");
+		final StringBuilder s = new StringBuilder();
+		while (s.length() < asciiSize) {
+			s.append("SELECT * FROM DUAL;\n");
+		}
+		s.append("-- 日本語で検索する\n");
+		Files.write(file.toPath(), s.toString().getBytes(StandardCharsets.UTF_8));
+		file.deleteOnExit();
+		directory.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testBinaryPolicy() throws InterruptedException, ExecutionException, IOException {
+		final File directory = Files.createTempDirectory("binary").toFile();
+		final File binary = new File(directory, "data.bin");
+		final File text = new File(directory, "data.txt");
+		Files.write(binary.toPath(), new byte[] { 'S', 'E', 'L', 'E', 'C', 'T', 0, 1, 2, 3, 0 });
+		Files.write(text.toPath(), "SELECT * FROM DUAL\n".getBytes(StandardCharsets.US_ASCII));
+		binary.deleteOnExit();
+		text.deleteOnExit();
+		directory.deleteOnExit();
+
+		final GrepCondition condition = new GrepCondition();
+		condition.addContainingText(new ContainingText("SELECT"));
+		condition.addTargetDirectory(new TargetDirectory(directory.getAbsolutePath()));
+
+		final Grep grep = new Grep();
+		List<GrepMatchFile> files = grep.submit(condition).get().getMatchFiles();
+		assertEquals(1, files.size());
+		assertEquals(text.getAbsolutePath(), files.get(0).getPath());
+		assertFalse(files.get(0).isBinary());
+		assertEquals(1, grep.getStatistics().getSkippedBinaryFileCount());
+
+		condition.setBinaryPolicy(GrepBinaryPolicy.SEARCH);
+		files = sortByPath(grep.submit(condition).get().getMatchFiles());
+		assertEquals(2, files.size());
+		assertEquals(binary.getAbsolutePath(), files.get(0).getPath());
+		assertEquals(1, files.get(0).getWords().size());
+		assertFalse(files.get(0).isBinary());
+		assertEquals(0, grep.getStatistics().getSkippedBinaryFileCount());
+
+		condition.setBinaryPolicy(GrepBinaryPolicy.REPORT);
+		files = sortByPath(grep.submit(condition).get().getMatchFiles());
+		assertEquals(2, files.size());
+		assertTrue(files.get(0).isBinary());
+		assertTrue(files.get(0).getWords().isEmpty());
+		assertFalse(files.get(1).isBinary());
+		grep.shutdown();
+	}
+
+	/**
+	 * パス順にソートした検索結果が一致することを確認する。
+	 * 
+	 * @param expected 期待する結果
+	 * @param actual 結果
+	 */
+	private static void assertSameResult(final List<GrepMatchFile> expected, final List<GrepMatchFile> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final GrepMatchFile e = expected.get(i);
+			final GrepMatchFile a = actual.get(i);
+			assertEquals(e.getPath(), a.getPath());
+			assertEquals(e.getCharset(), a.getCharset());
+			assertEquals(e.getLineSeparator(), a.getLineSeparator());
+			assertEquals(e.getWords().size(), a.getWords().size());
+			for (int j = 0; j < e.getWords().size(); j++) {
+				final GrepMatchWord ew = e.getWords().get(j);
+				final GrepMatchWord aw = a.getWords().get(j);
+				assertEquals(ew.getWord(), aw.getWord());
+				assertEquals(ew.getStart(), aw.getStart());
+				assertEquals(ew.getVirtualStart(), aw.getVirtualStart());
+				assertEquals(ew.getLine(), aw.getLine());
+				assertEquals(ew.getLineStart(), aw.getLineStart());
+				assertEquals(ew.getLineString(), aw.getLineString());
+			}
+		}
+	}
+
+	private static List<GrepMatchFile> sortByPath(final List<GrepMatchFile> files) {
+		final List<GrepMatchFile> result = new ArrayList<GrepMatchFile>(files);
+		Collections.sort(result, new Comparator<GrepMatchFile>() {
+			@Override
+			public int compare(final GrepMatchFile o1, final GrepMatchFile o2) {
+				return o1.getPath().compareTo(o2.getPath());
+			}
+		});
+		return result;
+	}
+
+	private static int sumMatchCount(final List<GrepMatchFile> files) {
+		int count = 0;
+		for (final GrepMatchFile file : files) {
+			count += file.getMatchCount();
+		}
+		return count;
+	}
 }
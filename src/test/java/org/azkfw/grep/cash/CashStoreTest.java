@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.azkfw.grep.entity.GrepTargetFile;
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link CashStore} の評価を行うテストクラスです。
+ * 
+ * @author Kawakicchi
+ */
+public class CashStoreTest extends TestCase {
+
+	@Test
+	public void testEviction() {
+		final long entry = newFile("a", 100).getWeight();
+		final CashStore store = new CashStore(entry * 3, entry, 1);
+
+		assertTrue(store.push(newFile("a", 100)));
+		assertTrue(store.push(newFile("b", 100)));
+		assertTrue(store.push(newFile("c", 100)));
+		assertEquals(3, store.size());
+		assertEquals(entry * 3, store.getWeight());
+
+		// 参照したファイルは破棄されない
+		assertNotNull(store.getFile(new File("a")));
+		assertTrue(store.push(newFile("d", 100)));
+		assertEquals(3, store.size());
+		assertNotNull(store.getFile(new File("a")));
+		assertNull(store.getFile(new File("b")));
+		assertEquals(1, store.getEvictionCount());
+
+		// 同じファイルは置き換える
+		assertTrue(store.push(newFile("a", 50)));
+		assertEquals(3, store.size());
+		assertEquals(entry * 3 - 100, store.getWeight());
+	}
+
+	@Test
+	public void testMaximumEntryWeight() {
+		final long entry = newFile("a", 100).getWeight();
+		final CashStore store = new CashStore(entry * 3, entry, 1);
+
+		assertTrue(store.push(newFile("a", 100)));
+		assertTrue(store.push(newFile("b", 100)));
+		assertFalse(store.push(newFile("huge", 101)));
+		assertEquals(2, store.size());
+		assertNull(store.getFile(new File("huge")));
+		assertEquals(0, store.getEvictionCount());
+
+		// 上限を超えた内容で更新された場合、古い内容も破棄する
+		assertFalse(store.push(newFile("a", 101)));
+		assertNull(store.getFile(new File("a")));
+		assertEquals(entry, store.getWeight());
+	}
+
+	@Test
+	public void testCompressColdEntries() {
+		final long entry = newFile("a", 100).getWeight();
+		final CashStore store = new CashStore(entry * 3, entry, 1);
+		store.setCompressColdEntries(true);
+
+		assertTrue(store.push(newFile("a", 100)));
+		assertTrue(store.push(newFile("b", 100)));
+		assertTrue(store.push(newFile("c", 100)));
+		assertTrue(store.push(newFile("d", 100)));
+
+		// 参照されていないファイルから、最大サイズ以下になるまで破棄せずに圧縮する
+		assertEquals(4, store.size());
+		assertEquals(0, store.getEvictionCount());
+		assertEquals(3, store.getCompressionCount());
+		final CashFile a = store.getFile(new File("a"));
+		assertEquals(CashForm.COMPRESSED, a.getForm());
+		assertEquals(newFile("a", 100).getSource(), a.getSource());
+		assertEquals(CashForm.TEXT, store.getFile(new File("d")).getForm());
+		assertTrue(store.getWeight() <= store.getMaximumWeight());
+	}
+
+	@Test
+	public void testCompressColdEntriesOverBudget() {
+		final long entry = newFile("a", 100).getWeight();
+		final CashStore store = new CashStore(entry * 3, entry, 1);
+		store.setCompressColdEntries(true);
+
+		for (final String name : new String[] { "a", "b", "c", "d", "e", "f" }) {
+			assertTrue(store.push(newFile(name, 100)));
+			assertTrue(store.getWeight() <= store.getMaximumWeight());
+		}
+
+		// 圧縮しても最大サイズを超える場合は、参照されていない順に破棄する
+		assertTrue(0 < store.getEvictionCount());
+		assertNull(store.getFile(new File("a")));
+		// 登録したファイルは圧縮しない
+		assertEquals(CashForm.TEXT, store.getFile(new File("f")).getForm());
+		assertEquals(CashForm.COMPRESSED, store.getFile(new File("e")).getForm());
+	}
+
+	@Test
+	public void testOffHeap() {
+		final CashStore store = new CashStore(1024 * 1024, 1024 * 1024, 1, 300, null);
+
+		assertTrue(store.push(newFile("a", 100)));
+		assertTrue(store.push(newFile("b", 100)));
+		assertTrue(store.push(newFile("c", 100)));
+		final CashFile a = store.getFile(new File("a"));
+		assertTrue(a.isOffHeap());
+		assertEquals(newFile("a", 100).getSource(), a.getSource());
+		assertEquals(300, store.getOffHeapUsed());
+
+		// ヒープ外の領域が不足した場合、参照されていない順に破棄する
+		assertNotNull(store.getFile(new File("a")));
+		assertTrue(store.push(newFile("d", 100)));
+		assertEquals(3, store.size());
+		assertNull(store.getFile(new File("b")));
+		assertEquals(1, store.getEvictionCount());
+
+		// 読み込み中の領域は参照を解放するまで返却しない
+		final CashFile c = store.getFile(new File("c"));
+		assertTrue(c.retain());
+		store.clear();
+		assertEquals(100, store.getOffHeapUsed());
+		assertEquals(newFile("c", 100).getSource(), c.getSource());
+		c.release();
+		assertEquals(0, store.getOffHeapUsed());
+		assertFalse(c.retain());
+	}
+
+	@Test
+	public void testOffHeapMaximumEntryWeight() {
+		final long entry = newFile("a", 100).getWeight();
+		final CashStore store = new CashStore(1024 * 1024, entry, 1, 300, null);
+
+		assertTrue(store.push(newFile("a", 100)));
+		assertTrue(store.push(newFile("b", 100)));
+		assertEquals(200, store.getOffHeapUsed());
+
+		// 上限を超えるファイル内容はヒープ外の領域に収まる場合でも登録せず、他のファイル内容も破棄しない
+		assertFalse(store.push(newFile("huge", 150)));
+		assertNull(store.getFile(new File("huge")));
+		assertEquals(2, store.size());
+		assertNotNull(store.getFile(new File("a")));
+		assertNotNull(store.getFile(new File("b")));
+		assertEquals(0, store.getEvictionCount());
+		assertEquals(200, store.getOffHeapUsed());
+	}
+
+	@Test
+	public void testGetOrLoad() throws Exception {
+		final CashStore store = new CashStore(1024 * 1024);
+		final GrepTargetFile target = new GrepTargetFile(new File("a"));
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// 同じファイルの同時読み込みは1回にまとめる
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<CashFile>> futures = new ArrayList<Future<CashFile>>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(executor.submit(() -> store.getOrLoad(target, () -> {
+				loads.incrementAndGet();
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+					throw new InterruptedIOException();
+				}
+				return newFile("a", 10);
+			})));
+		}
+		started.await();
+		Thread.sleep(100);
+		release.countDown();
+		final CashFile file = futures.get(0).get();
+		for (final Future<CashFile> future : futures) {
+			assertSame(file, future.get());
+		}
+		assertEquals(1, loads.get());
+		executor.shutdown();
+
+		// 読み込み済みのファイルはローダーを呼び出さない
+		assertSame(file, store.getOrLoad(target, () -> {
+			fail();
+			return null;
+		}));
+
+		// キャッシュしない結果は登録しない
+		final GrepTargetFile other = new GrepTargetFile(new File("b"));
+		assertNull(store.getOrLoad(other, () -> null));
+		assertNull(store.getFile(other.getFile()));
+	}
+
+	private static CashFile newFile(final String name, final int length) {
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			s.append('x');
+		}
+		return new CashFile(new File(name), "UTF-8", "\n", s.toString());
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.cash;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link OffHeapAllocator} の評価を行うテストクラスです。
+ * 
+ * @author Kawakicchi
+ */
+public class OffHeapAllocatorTest extends TestCase {
+
+	@Test
+	public void testAllocate() throws IOException {
+		final OffHeapAllocator allocator = new OffHeapAllocator(100, 100, null);
+
+		final OffHeapBlock a = allocator.allocate(30);
+		final OffHeapBlock b = allocator.allocate(30);
+		final OffHeapBlock c = allocator.allocate(30);
+		assertNull(allocator.allocate(30));
+		assertFalse(allocator.isAllocatable(101));
+		assertEquals(90, allocator.getUsed());
+
+		// 解放した領域は隣接する空き領域と結合する
+		a.release();
+		b.release();
+		final OffHeapBlock d = allocator.allocate(60);
+		assertNotNull(d);
+		assertEquals(0, d.getOffset());
+		assertEquals(c.getOffset() + c.getLength(), allocator.allocate(10).getOffset());
+		assertEquals(100, allocator.getUsed());
+	}
+
+	@Test
+	public void testMappedSlab() throws IOException {
+		final File directory = new File(System.getProperty("java.io.tmpdir"));
+		final OffHeapAllocator allocator = new OffHeapAllocator(64, 32, directory);
+
+		final OffHeapBlock a = allocator.allocate(4);
+		a.write(new byte[] { 1, 2, 3, 4 });
+		final ByteBuffer buffer = a.getBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(4, buffer.remaining());
+		assertEquals(3, buffer.get(2));
+
+		// スラブに収まらない場合は新しいスラブを確保する
+		assertNotNull(allocator.allocate(32));
+		assertNull(allocator.allocate(1 + 64 - 36));
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.entity;
+
+import junit.framework.TestCase;
+
+import org.azkfw.grep.util.LineIndex;
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link GrepMatchWord} の評価を行うテストクラスです。
+ *
+ * @author Kawakicchi
+ */
+public class GrepMatchWordTest extends TestCase {
+
+	@Test
+	public void testLazyText() {
+		final String source = "-- comment\r\nSELECT * FROM DUAL\r\n";
+		final GrepMatchText text = new GrepMatchText(source, LineIndex.create(source));
+		final GrepMatchWord select = new GrepMatchWord(1, text, 12, 18, 11, 17);
+		final GrepMatchWord from = new GrepMatchWord(2, text, 21, 25, 20, 24);
+
+		assertEquals(2, select.getLine());
+		assertEquals(12, select.getLineStart());
+		assertEquals("SELECT", select.getWord());
+		assertEquals("FROM", from.getWord());
+		assertEquals("SELECT * FROM DUAL", select.getLineString());
+
+		// 切り出したワード・行文字列は保持し、同じ行の行文字列は共有する
+		assertTrue(select.getWord() == select.getWord());
+		assertTrue(select.getLineString() == select.getLineString());
+		assertTrue(select.getLineString() == from.getLineString());
+	}
+
+	@Test
+	public void testSetWord() {
+		final String source = "SELECT";
+		final GrepMatchWord word = new GrepMatchWord(1, new GrepMatchText(source, LineIndex.create(source)), 0, 6, 0, 6);
+		word.setWord("select");
+		assertEquals("select", word.getWord());
+		word.setLine(1, 0, "select");
+		assertEquals("select", word.getLineString());
+	}
+}
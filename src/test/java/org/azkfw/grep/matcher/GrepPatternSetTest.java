@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link GrepPatternSet} の評価を行うテストクラスです。
+ * 
+ * @author Kawakicchi
+ */
+public class GrepPatternSetTest extends TestCase {
+
+	@Test
+	public void testSameAsRegex() {
+		final String alphabet = "abAB表ä";
+		final Random random = new Random(0);
+		for (int n = 0; n < 2000; n++) {
+			final String text = random(random, alphabet, random.nextInt(64));
+
+			final List<GrepPattern> patterns = new ArrayList<GrepPattern>();
+			final List<Pattern> regexes = new ArrayList<Pattern>();
+			final int size = 1 + random.nextInt(4);
+			for (int i = 0; i < size; i++) {
+				if (0 == random.nextInt(4)) {
+					final Pattern regex = Pattern.compile("a+b?", Pattern.CASE_INSENSITIVE);
+					patterns.add(new RegexGrepPattern(regex));
+					regexes.add(regex);
+				} else {
+					final String literal = random(random, alphabet, 1 + random.nextInt(3));
+					patterns.add(new LiteralGrepPattern(literal, true));
+					regexes.add(Pattern.compile(Pattern.quote(literal), Pattern.CASE_INSENSITIVE));
+				}
+			}
+
+			final List<String> expected = new ArrayList<String>();
+			boolean all = true;
+			for (int i = 0; i < regexes.size(); i++) {
+				final Matcher m = regexes.get(i).matcher(text);
+				boolean find = false;
+				while (m.find()) {
+					expected.add(Arrays.toString(new int[] { i, m.start(), m.end() }));
+					find = true;
+				}
+				all &= find;
+			}
+
+			final List<String> actual = new ArrayList<String>();
+			final boolean result = new GrepPatternSet(patterns).find(text, (index, start, end) -> actual.add(Arrays.toString(new int[] { index,
+					start, end })));
+			assertEquals(all, result);
+			if (all) {
+				assertEquals(expected, actual);
+
+				// 最大一致数を指定しても位置順の先頭の一致は変わらない
+				final List<int[]> limited = new ArrayList<int[]>();
+				assertTrue(new GrepPatternSet(patterns).find(text, (index, start, end) -> limited.add(new int[] { index, start, end }), 2));
+				assertEquals(first(expected, 2), first(toStrings(limited), 2));
+			} else {
+				assertTrue(actual.isEmpty());
+			}
+		}
+	}
+
+	private static List<String> toStrings(final List<int[]> matches) {
+		final List<String> strings = new ArrayList<String>();
+		for (final int[] match : matches) {
+			strings.add(Arrays.toString(match));
+		}
+		return strings;
+	}
+
+	private static List<String> first(final List<String> matches, final int size) {
+		final List<int[]> list = new ArrayList<int[]>();
+		for (final String match : matches) {
+			final String[] values = match.substring(1, match.length() - 1).split(", ");
+			list.add(new int[] { Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]) });
+		}
+		list.sort((o1, o2) -> o1[1] - o2[1]);
+		return toStrings(list.subList(0, Math.min(size, list.size())));
+	}
+
+	private static String random(final Random random, final String alphabet, final int length) {
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return s.toString();
+	}
+}
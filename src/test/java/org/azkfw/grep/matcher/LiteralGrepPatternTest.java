@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.matcher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link LiteralGrepPattern} の評価を行うテストクラスです。
+ * 
+ * @author Kawakicchi
+ */
+public class LiteralGrepPatternTest extends TestCase {
+
+	@Test
+	public void testFind() {
+		final GrepMatcher matcher = new LiteralGrepPattern("List", true).matcher("list<LIST> = new ArrayList();");
+		assertTrue(matcher.find());
+		assertEquals(0, matcher.start());
+		assertEquals(4, matcher.end());
+		assertTrue(matcher.find());
+		assertEquals(5, matcher.start());
+		assertTrue(matcher.find());
+		assertEquals(22, matcher.start());
+		assertFalse(matcher.find());
+	}
+
+	@Test
+	public void testSameAsRegex() {
+		final String alphabet = "aAbBäÄšŠ \r\n";
+		final Random random = new Random(0);
+		for (int n = 0; n < 2000; n++) {
+			final String text = random(random, alphabet, random.nextInt(64));
+			final String literal = random(random, alphabet, 1 + random.nextInt(4));
+
+			final Matcher expected = Pattern.compile(Pattern.quote(literal), Pattern.CASE_INSENSITIVE).matcher(text);
+			final GrepMatcher actual = new LiteralGrepPattern(literal, true).matcher(text);
+			while (expected.find()) {
+				assertTrue(actual.find());
+				assertEquals(expected.start(), actual.start());
+				assertEquals(expected.end(), actual.end());
+			}
+			assertFalse(actual.find());
+		}
+	}
+
+	@Test
+	public void testBytePattern() {
+		final String alphabet = "aAbBäÄšŠ表\r\n";
+		final Random random = new Random(0);
+		for (int n = 0; n < 2000; n++) {
+			final String text = random(random, alphabet, random.nextInt(64));
+			final String literal = random(random, alphabet, 1 + random.nextInt(4));
+
+			final LiteralGrepPattern pattern = new LiteralGrepPattern(literal, true);
+			final boolean expected = pattern.matcher(text).find();
+
+			// UTF-8はバイト列の一致と文字列の一致が等しい
+			final byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+			final LiteralBytePattern utf8Pattern = pattern.toBytePattern(StandardCharsets.UTF_8);
+			final int index = utf8Pattern.indexOf(utf8, 0, utf8.length);
+			assertEquals(expected, 0 <= index);
+
+			// ヒープ外のバッファも同じ位置に一致する
+			final ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+			direct.put(utf8).flip();
+			assertEquals(index, utf8Pattern.indexOf(direct, 0, direct.limit()));
+
+			// Shift_JISは見逃しが無い
+			final Charset sjis = Charset.forName("Shift_JIS");
+			final LiteralBytePattern bytePattern = pattern.toBytePattern(sjis);
+			if (null != bytePattern && expected) {
+				final byte[] bytes = text.getBytes(sjis);
+				assertTrue(0 <= bytePattern.indexOf(bytes, 0, bytes.length));
+			}
+		}
+		assertNull(new LiteralGrepPattern("表", true).toBytePattern(Charset.forName("Shift_JIS")));
+		assertNull(new LiteralGrepPattern("a", true).toBytePattern(StandardCharsets.UTF_16));
+	}
+
+	private static String random(final Random random, final String alphabet, final int length) {
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.azkfw.grep.entity.GrepCondition;
+import org.azkfw.grep.entity.GrepTargetFile;
+import org.azkfw.grep.entity.TargetDirectory;
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link ParallelGrepScanner} の評価を行うテストクラスです。
+ *
+ * @author Kawakicchi
+ */
+public class ParallelGrepScannerTest extends TestCase {
+
+	@Test
+	public void testScan() {
+		final GrepCondition condition = new GrepCondition();
+		condition.addTargetDirectory(new TargetDirectory("src"));
+
+		final List<String> expected = scan(condition);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, scanParallel(condition));
+	}
+
+	@Test
+	public void testSymbolicLinkLoop() throws IOException {
+		final Path root = Files.createTempDirectory("scanner");
+		try {
+			final Path a = Files.createDirectories(root.resolve("a"));
+			final Path b = Files.createDirectories(a.resolve("b"));
+			final Path c = Files.createDirectories(b.resolve("c"));
+			final Path d = Files.createDirectories(root.resolve("d"));
+			Files.write(a.resolve("a.txt"), new byte[] { 'a' });
+			Files.write(b.resolve("b.txt"), new byte[] { 'b' });
+			Files.write(c.resolve("c.txt"), new byte[] { 'c' });
+			Files.write(d.resolve("d.txt"), new byte[] { 'd' });
+			// 祖先ディレクトリへのリンク(循環)と、別階層のディレクトリへのリンク(循環しない)
+			Files.createSymbolicLink(c.resolve("loop"), a);
+			Files.createSymbolicLink(d.resolve("link"), b);
+
+			final GrepCondition condition = new GrepCondition();
+			condition.addTargetDirectory(new TargetDirectory(root.toString()));
+
+			final List<String> expected = scan(condition);
+			assertTrue(expected.contains(d.resolve("link").resolve("c").resolve("c.txt").toString()));
+			assertEquals(expected, scanParallel(condition));
+		} finally {
+			FileUtils.deleteDirectory(root.toFile());
+		}
+	}
+
+	private static List<String> scan(final GrepCondition condition) {
+		final List<String> paths = Collections.synchronizedList(new ArrayList<String>());
+		new GrepScanner(null, condition, new TargetFileListener(paths)).run();
+		Collections.sort(paths);
+		return paths;
+	}
+
+	private static List<String> scanParallel(final GrepCondition condition) {
+		final List<String> paths = Collections.synchronizedList(new ArrayList<String>());
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new ParallelGrepScanner(null, condition, new TargetFileListener(paths), pool).run();
+		} finally {
+			pool.shutdown();
+		}
+		Collections.sort(paths);
+		return paths;
+	}
+
+	/**
+	 * このクラスは、Grep対象ファイルのパスを収集するリスナークラスです。
+	 *
+	 * @author Kawakicchi
+	 */
+	private static class TargetFileListener implements GrepScannerListener {
+
+		private final List<String> paths;
+
+		private TargetFileListener(final List<String> paths) {
+			this.paths = paths;
+		}
+
+		@Override
+		public void grepScannerStart(final GrepScannerEvent event) {
+		}
+
+		@Override
+		public void grepScannerEnd(final GrepScannerEvent event) {
+		}
+
+		@Override
+		public void grepScannerFindFile(final File file, final GrepScannerEvent event) {
+		}
+
+		@Override
+		public void grepScannerFindDirectory(final File directory, final GrepScannerEvent event) {
+		}
+
+		@Override
+		public void grepScannerTargetFile(final GrepTargetFile file, final GrepScannerEvent event) {
+			paths.add(file.getFile().getPath());
+		}
+
+		@Override
+		public void grepScannerTargetDirectory(final File directory, final GrepScannerEvent event) {
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.azkfw.grep.util;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link LineIndex} の評価を行うテストクラスです。
+ *
+ * @author Kawakicchi
+ */
+public class LineIndexTest extends TestCase {
+
+	@Test
+	public void testCrLf() {
+		final LineIndex index = LineIndex.create("ab\r\ncd\r\n");
+		assertEquals(3, index.getLineCount());
+		assertEquals(1, index.getLineNo(0));
+		assertEquals(1, index.getLineNo(1));
+		// 改行コード上の位置は次の行
+		assertEquals(2, index.getLineNo(2));
+		assertEquals(2, index.getLineNo(3));
+		assertEquals(2, index.getLineNo(4));
+		assertEquals(3, index.getLineNo(6));
+		assertEquals(3, index.getLineNo(8));
+
+		assertEquals(0, index.getLineStart(1));
+		assertEquals(4, index.getLineStart(2));
+		assertEquals(8, index.getLineStart(3));
+		assertEquals("ab", index.getLineString(1));
+		assertEquals("cd", index.getLineString(2));
+		assertEquals("", index.getLineString(3));
+	}
+
+	@Test
+	public void testCr() {
+		final LineIndex index = LineIndex.create("ab\rcd\ref");
+		assertEquals(3, index.getLineCount());
+		assertEquals(1, index.getLineNo(1));
+		assertEquals(2, index.getLineNo(2));
+		assertEquals(2, index.getLineNo(3));
+		assertEquals(3, index.getLineNo(5));
+		assertEquals(3, index.getLineStart(2));
+		assertEquals(6, index.getLineStart(3));
+		assertEquals("ab", index.getLineString(1));
+		assertEquals("cd", index.getLineString(2));
+		assertEquals("ef", index.getLineString(3));
+	}
+
+	@Test
+	public void testLf() {
+		final LineIndex index = LineIndex.create("ab\n\ncd");
+		assertEquals(3, index.getLineCount());
+		assertEquals(2, index.getLineNo(2));
+		assertEquals(3, index.getLineNo(3));
+		assertEquals(3, index.getLineNo(4));
+		assertEquals(3, index.getLineStart(2));
+		assertEquals(4, index.getLineStart(3));
+		assertEquals("ab", index.getLineString(1));
+		assertEquals("", index.getLineString(2));
+		assertEquals("cd", index.getLineString(3));
+	}
+
+	@Test
+	public void testMixed() {
+		// LF+CRはCR+LFではなく2つの改行コード
+		final String source = "a\r\nb\rc\nd\n\re";
+		final LineIndex index = LineIndex.create(source);
+		final String[] lines = { "a", "b", "c", "d", "", "e" };
+		assertEquals(lines.length, index.getLineCount());
+		for (int no = 1; no <= lines.length; no++) {
+			assertEquals(lines[no - 1], index.getLineString(no));
+			if (!lines[no - 1].isEmpty()) {
+				assertEquals(no, index.getLineNo(index.getLineStart(no)));
+			}
+		}
+		// 空行の開始位置は改行コード上のため次の行
+		assertEquals(6, index.getLineNo(index.getLineStart(5)));
+		assertEquals(1, index.getLineNo(0));
+		assertEquals(6, index.getLineNo(source.length()));
+	}
+
+	@Test
+	public void testEmpty() {
+		final LineIndex index = LineIndex.create("");
+		assertEquals(1, index.getLineCount());
+		assertEquals(1, index.getLineNo(0));
+		assertEquals(0, index.getLineStart(1));
+		assertEquals("", index.getLineString(1));
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package searcher;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * このクラスは、{@link VirtualOffsetTable} の評価を行うテストクラスです。
+ *
+ * @author Kawakicchi
+ */
+public class VirtualOffsetTableTest extends TestCase {
+
+	@Test
+	public void testCrLf() {
+		final VirtualOffsetTable table = VirtualOffsetTable.create("ab\r\ncd\r\nef");
+		assertEquals(0, table.toVirtual(0));
+		assertEquals(2, table.toVirtual(2));
+		// CRLFのLFは置き換えたLFの直後の位置になる
+		assertEquals(3, table.toVirtual(3));
+		assertEquals(3, table.toVirtual(4));
+		assertEquals(6, table.toVirtual(8));
+		assertEquals(8, table.toVirtual(10));
+	}
+
+	@Test
+	public void testCr() {
+		final VirtualOffsetTable table = VirtualOffsetTable.create("ab\rcd\ref");
+		for (int i = 0; i <= 8; i++) {
+			assertEquals(i, table.toVirtual(i));
+		}
+	}
+
+	@Test
+	public void testLf() {
+		final VirtualOffsetTable table = VirtualOffsetTable.create("ab\ncd\nef");
+		for (int i = 0; i <= 8; i++) {
+			assertEquals(i, table.toVirtual(i));
+		}
+	}
+
+	@Test
+	public void testCrLfAtEnd() {
+		final VirtualOffsetTable table = VirtualOffsetTable.create("ab\r\n");
+		assertEquals(2, table.toVirtual(2));
+		assertEquals(3, table.toVirtual(3));
+		assertEquals(3, table.toVirtual(4));
+
+		// CRで終わる場合はCRLFではない
+		final VirtualOffsetTable cr = VirtualOffsetTable.create("ab\r");
+		assertEquals(3, cr.toVirtual(3));
+	}
+
+	@Test
+	public void testSameAsReplace() {
+		final String alphabet = "ab\r\n";
+		final Random random = new Random(0);
+		for (int n = 0; n < 1000; n++) {
+			final StringBuilder s = new StringBuilder();
+			final int length = random.nextInt(64);
+			for (int i = 0; i < length; i++) {
+				s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			final String source = s.toString();
+			final String replaced = source.replace("\r\n", "\n").replace('\r', '\n');
+			final VirtualOffsetTable table = VirtualOffsetTable.create(source);
+
+			assertEquals(replaced.length(), table.toVirtual(source.length()));
+			for (int i = 0; i < source.length(); i++) {
+				if ('\n' == source.charAt(i) && 0 < i && '\r' == source.charAt(i - 1)) {
+					continue;
+				}
+				final char c = ('\r' == source.charAt(i)) ? '\n' : source.charAt(i);
+				assertEquals(c, replaced.charAt(table.toVirtual(i)));
+			}
+		}
+	}
+}